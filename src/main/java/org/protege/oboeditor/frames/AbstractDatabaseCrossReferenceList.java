@@ -1,22 +1,30 @@
 package org.protege.oboeditor.frames;
 
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 import javax.swing.JOptionPane;
 import javax.swing.ListCellRenderer;
 
 import org.protege.editor.core.ui.list.MList;
+import org.protege.editor.core.ui.list.MListButton;
 import org.protege.editor.core.ui.list.MListItem;
 import org.protege.editor.core.ui.list.MListSectionHeader;
 import org.protege.editor.owl.OWLEditorKit;
 import org.protege.editor.owl.model.AnnotationContainer;
-import org.protege.editor.owl.model.OWLModelManager;
 import org.protege.editor.owl.ui.UIHelper;
 import org.protege.oboeditor.renderer.OBOAnnotationCellRenderer;
+import org.protege.oboeditor.util.AnnotationPropertyDeclarations;
 import org.protege.oboeditor.util.OBOVocabulary;
 import org.semanticweb.owlapi.model.*;
 
@@ -35,6 +43,8 @@ public abstract class AbstractDatabaseCrossReferenceList<O extends AnnotationCon
 
     private OBOAnnotationEditor editor;
 
+    private XrefBlockEditor blockEditor;
+
     private O root;
 
     private MListSectionHeader header = new MListSectionHeader() {
@@ -48,9 +58,27 @@ public abstract class AbstractDatabaseCrossReferenceList<O extends AnnotationCon
         }
     };
 
-    private OWLOntologyChangeListener ontChangeListener = new OWLOntologyChangeListener(){
-        public void ontologiesChanged(List<? extends OWLOntologyChange> changes) throws OWLException {
-            handleOntologyChanges(changes);
+    private final MListButton addBlockButton = new MListButton("Add several", Color.GREEN.darker(), new ActionListener() {
+        public void actionPerformed(ActionEvent e) {
+            handleAddBlock();
+        }
+    }) {
+
+        @Override
+        public void paintButtonContent(Graphics2D g) {
+            Rectangle bounds = getBounds();
+            int x = bounds.x;
+            int y = bounds.y;
+            int size = bounds.width;
+            int quarterSize = (Math.round(bounds.width / 4.0f) / 2) * 2;
+            int thickness = (Math.round(size / 8.0f) / 2) * 2;
+            // two small crosses, one above the other
+            for (int offset = -quarterSize / 2; offset <= quarterSize / 2; offset += quarterSize) {
+                int centreX = x + size / 2 + offset;
+                int centreY = y + size / 2 + offset;
+                g.fillRect(centreX - quarterSize / 2, centreY - thickness / 2, quarterSize, thickness);
+                g.fillRect(centreX - thickness / 2, centreY - quarterSize / 2, thickness, quarterSize);
+            }
         }
     };
 
@@ -64,32 +92,50 @@ public abstract class AbstractDatabaseCrossReferenceList<O extends AnnotationCon
 
     private ListCellRenderer delegate;
 
+    private OBOAnnotationCellRenderer annotationRenderer;
+
 
 
     public AbstractDatabaseCrossReferenceList(OWLEditorKit eKit) {
         this.editorKit = eKit;
         delegate = getCellRenderer();
-        setCellRenderer(new OBOAnnotationCellRenderer(eKit));
+        annotationRenderer = new OBOAnnotationCellRenderer(eKit);
+        setCellRenderer(annotationRenderer);
         addMouseListener(mouseListener);
-        eKit.getOWLModelManager().addOntologyChangeListener(ontChangeListener);
+        DatabaseCrossReferenceListDispatcher.get(eKit.getOWLModelManager()).register(this);
     }
 
 
     protected abstract List<OWLOntologyChange> getAddChanges(OWLAnnotation annot);
 
+    /**
+     * Gets the changes that add all the given annotations at once.
+     */
+    protected abstract List<OWLOntologyChange> getAddChanges(Collection<OWLAnnotation> annots);
+
     protected abstract List<OWLOntologyChange> getReplaceChanges(OWLAnnotation oldAnnotation, OWLAnnotation newAnnotation);
 
     protected abstract List<OWLOntologyChange> getDeleteChanges(OWLAnnotation annot);
 
+    /**
+     * Handles the changes to the root axiom of the list, see {@link #getRootAxiom()}. Changes are only
+     * passed on while the list is showing.
+     */
     protected abstract void handleOntologyChanges(List<? extends OWLOntologyChange> changes);
 
+    /**
+     * Gets the axiom whose changes the list needs to see, or null if it does not need to see any.
+     */
+    protected abstract OWLAxiom getRootAxiom();
+
 
     protected void handleAdd() {
         // don't need to check the section as only the direct imports can be added
         if (editor == null){
 //            editor = new OWLAnnotationEditor(editorKit);
-            OWLAnnotationProperty property = getOrCreateXrefProperty(editorKit);
-            editor = new OBOAnnotationEditor(editorKit, property);
+            // the property is declared together with the new xref, see getXrefDeclarationChanges
+            OWLAnnotationProperty property = editorKit.getModelManager().getOWLDataFactory().getOWLAnnotationProperty(OBOVocabulary.XREF.getIRI());
+            editor = OBOAnnotationEditorPool.get(editorKit).acquire(property);
         }
 
         editor.setEditedObject(null);
@@ -100,22 +146,59 @@ public abstract class AbstractDatabaseCrossReferenceList<O extends AnnotationCon
         if (ret == JOptionPane.OK_OPTION) {
             OWLAnnotation annot = editor.getEditedObject();
             if (annot != null) {
-            	editorKit.getModelManager().applyChanges(getAddChanges(annot));
+            	List<OWLOntologyChange> changes = getXrefDeclarationChanges();
+            	changes.addAll(getAddChanges(annot));
+            	editorKit.getModelManager().applyChanges(changes);
             }
         }
     }
 
-    public OWLAnnotationProperty getOrCreateXrefProperty(OWLEditorKit editorKit) {
+    /**
+     * Adds a pasted block of xrefs with a single change, so that the list is only refreshed once.
+     */
+    protected void handleAddBlock() {
+        if (root == null) {
+            return;
+        }
+        if (blockEditor == null) {
+            blockEditor = new XrefBlockEditor(editorKit);
+        }
+        blockEditor.clear();
 
-        OWLAnnotationProperty property = editorKit.getOWLModelManager().getOWLDataFactory().getOWLAnnotationProperty(OBOVocabulary.XREF.getIRI());
+        UIHelper uiHelper = new UIHelper(editorKit);
+        int ret = uiHelper.showDialog("Add Database Cross References", blockEditor.getEditorComponent(), null);
 
-        if (!editorKit.getModelManager().getActiveOntology().getAnnotationPropertiesInSignature().contains(property)) {
-            OWLModelManager man = editorKit.getModelManager();
-            OWLAxiom ax = man.getOWLDataFactory().getOWLDeclarationAxiom(property);
-            man.applyChange(new AddAxiom(editorKit.getModelManager().getActiveOntology(), ax));
+        if (ret == JOptionPane.OK_OPTION) {
+            List<OWLAnnotation> annots = blockEditor.getXrefs();
+            if (!annots.isEmpty()) {
+                List<OWLOntologyChange> changes = getXrefDeclarationChanges();
+                changes.addAll(getAddChanges(annots));
+                editorKit.getModelManager().applyChanges(changes);
+            }
+        }
+    }
+
+    @Override
+    protected List<MListButton> getSectionButtons(MListSectionHeader header) {
+        List<MListButton> buttons = new ArrayList<MListButton>(super.getSectionButtons(header));
+        if (header == this.header) {
+            buttons.add(addBlockButton);
         }
-        return property;
+        return buttons;
+    }
+
+    public OWLAnnotationProperty getOrCreateXrefProperty(OWLEditorKit editorKit) {
+        return AnnotationPropertyDeclarations.get(editorKit.getModelManager()).ensureDeclared(OBOVocabulary.XREF.getIRI());
+    }
 
+    /**
+     * Gets the declaration of the xref property if it is not declared yet, to go in front of the changes
+     * that add xrefs, so that both are applied and undone together.
+     * @return A modifiable, possibly empty, list of changes.
+     */
+    protected List<OWLOntologyChange> getXrefDeclarationChanges() {
+        return AnnotationPropertyDeclarations.get(editorKit.getModelManager()).getDeclarationChanges(
+                Collections.singleton(OBOVocabulary.XREF.getIRI()));
     }
 
     public void setRootObject(O root){
@@ -153,9 +236,10 @@ public abstract class AbstractDatabaseCrossReferenceList<O extends AnnotationCon
 
 
     public void dispose() {
-        editorKit.getOWLModelManager().removeOntologyChangeListener(ontChangeListener);
+        DatabaseCrossReferenceListDispatcher.get(editorKit.getOWLModelManager()).unregister(this);
+        annotationRenderer.dispose();
         if (editor != null) {
-        	editor.dispose();
+        	OBOAnnotationEditorPool.get(editorKit).release(editor);
         	editor = null;
         }
     }
@@ -183,7 +267,7 @@ public abstract class AbstractDatabaseCrossReferenceList<O extends AnnotationCon
         public void handleEdit() {
             // don't need to check the section as only the direct imports can be added
             if (editor == null){
-                editor = new OBOAnnotationEditor(editorKit, editorKit.getOWLModelManager().getOWLDataFactory().getOWLAnnotationProperty(OBOVocabulary.XREF.getIRI()));
+                editor = OBOAnnotationEditorPool.get(editorKit).acquire(editorKit.getOWLModelManager().getOWLDataFactory().getOWLAnnotationProperty(OBOVocabulary.XREF.getIRI()));
             }
             editor.setEditedObject(annot);
             UIHelper uiHelper = new UIHelper(editorKit);
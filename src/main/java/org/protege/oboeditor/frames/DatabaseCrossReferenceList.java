@@ -3,9 +3,12 @@ package org.protege.oboeditor.frames;
 import org.protege.editor.owl.OWLEditorKit;
 import org.protege.editor.owl.model.util.OWLAxiomInstance;
 import org.protege.editor.owl.ui.list.AbstractAnnotationsList;
+import org.protege.oboeditor.util.XrefPool;
 import org.semanticweb.owlapi.model.*;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -19,9 +22,12 @@ public class DatabaseCrossReferenceList extends AbstractDatabaseCrossReferenceLi
 
     private OWLAxiom newAxiom;
 
+    private final XrefPool xrefPool;
+
 
     public DatabaseCrossReferenceList(OWLEditorKit eKit) {
         super(eKit);
+        xrefPool = XrefPool.get(eKit.getOWLModelManager());
     }
 
     @Override
@@ -32,19 +38,48 @@ public class DatabaseCrossReferenceList extends AbstractDatabaseCrossReferenceLi
     }
 
     protected java.util.List<OWLOntologyChange> getAddChanges(OWLAnnotation annot) {
+        return getAddChanges(Collections.singleton(annot));
+    }
+
+
+    protected List<OWLOntologyChange> getAddChanges(Collection<OWLAnnotation> annots) {
         List<OWLOntologyChange> changes = new ArrayList<OWLOntologyChange>();
-        final OWLAxiom oldAxiom = getRoot().getAxiom();
+        List<OWLAnnotation> pooled = new ArrayList<OWLAnnotation>(annots.size());
+        for (OWLAnnotation annot : annots) {
+            pooled.add(xrefPool.intern(annot));
+        }
+        OWLAxiom annotated = getAddChanges(getRoot().getOntology(), getRoot().getAxiom(), pooled, changes);
+        if (annotated != null) {
+            newAxiom = annotated;
+        }
+        return changes;
+    }
 
+
+    /**
+     * Adds the changes that annotate an axiom with the given annotations, on top of the ones it already has,
+     * to a change list. Annotating an axiom produces a new axiom, so the axiom is removed and the annotated
+     * one added.
+     * @return The annotated axiom, or <code>null</code> if the axiom already has all the annotations, in
+     * which case no changes are added.
+     */
+    public static OWLAxiom getAddChanges(OWLOntology ont, OWLAxiom oldAxiom, Collection<OWLAnnotation> annots, List<OWLOntologyChange> changes) {
         Set<OWLAnnotation> annotations = new HashSet<OWLAnnotation>(oldAxiom.getAnnotations());
-        annotations.add(annot);
+        boolean added = false;
+        for (OWLAnnotation annot : annots) {
+            added |= annotations.add(annot);
+        }
+        if (!added) {
+            // all of them are there already
+            return null;
+        }
 
         // because for some reason the merge does not work
-        newAxiom = oldAxiom.getAxiomWithoutAnnotations().getAnnotatedAxiom(annotations);
+        OWLAxiom newAxiom = oldAxiom.getAxiomWithoutAnnotations().getAnnotatedAxiom(annotations);
 
-        final OWLOntology ont = getRoot().getOntology();
         changes.add(new RemoveAxiom(ont, oldAxiom));
         changes.add(new AddAxiom(ont, newAxiom));
-        return changes;
+        return newAxiom;
     }
 
 
@@ -54,7 +89,7 @@ public class DatabaseCrossReferenceList extends AbstractDatabaseCrossReferenceLi
         final OWLOntology ont = getRoot().getOntology();
         Set<OWLAnnotation> annotations = new HashSet<OWLAnnotation>(ax.getAnnotations());
         annotations.remove(oldAnnotation);
-        annotations.add(newAnnotation);
+        annotations.add(xrefPool.intern(newAnnotation));
 
         newAxiom = ax.getAxiomWithoutAnnotations().getAnnotatedAxiom(annotations);
 
@@ -79,6 +114,10 @@ public class DatabaseCrossReferenceList extends AbstractDatabaseCrossReferenceLi
         return changes;
     }
 
+    protected OWLAxiom getRootAxiom() {
+        return getRoot() == null ? null : getRoot().getAxiom();
+    }
+
     protected void handleOntologyChanges(List<? extends OWLOntologyChange> changes) {
 
         // this is complicated by the fact that annotating an axiom produces a new axiom
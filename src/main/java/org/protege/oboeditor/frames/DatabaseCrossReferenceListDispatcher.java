@@ -0,0 +1,112 @@
+package org.protege.oboeditor.frames;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.protege.editor.core.Disposable;
+import org.protege.editor.owl.model.OWLModelManager;
+import org.semanticweb.owlapi.model.OWLAxiom;
+import org.semanticweb.owlapi.model.OWLException;
+import org.semanticweb.owlapi.model.OWLOntologyChange;
+import org.semanticweb.owlapi.model.OWLOntologyChangeListener;
+
+/**
+ * Routes ontology changes to the database cross reference lists of a model manager through a single
+ * ontology change listener.
+ * <p>
+ * For every broadcast the root axioms of the lists that are showing are collected once, and each change
+ * is looked up against them. A list is only notified of the changes to its own root axiom, and lists
+ * that are not showing are skipped entirely.
+ */
+class DatabaseCrossReferenceListDispatcher implements Disposable {
+
+    private final OWLModelManager modelManager;
+
+    private final List<AbstractDatabaseCrossReferenceList<?>> lists = new CopyOnWriteArrayList<AbstractDatabaseCrossReferenceList<?>>();
+
+    private final OWLOntologyChangeListener ontologyChangeListener = new OWLOntologyChangeListener() {
+        public void ontologiesChanged(List<? extends OWLOntologyChange> changes) throws OWLException {
+            handleOntologyChanges(changes);
+        }
+    };
+
+
+    private DatabaseCrossReferenceListDispatcher(OWLModelManager modelManager) {
+        this.modelManager = modelManager;
+        modelManager.addOntologyChangeListener(ontologyChangeListener);
+    }
+
+
+    public static synchronized DatabaseCrossReferenceListDispatcher get(OWLModelManager modelManager) {
+        DatabaseCrossReferenceListDispatcher dispatcher = modelManager.get(DatabaseCrossReferenceListDispatcher.class);
+        if (dispatcher == null) {
+            dispatcher = new DatabaseCrossReferenceListDispatcher(modelManager);
+            modelManager.put(DatabaseCrossReferenceListDispatcher.class, dispatcher);
+        }
+        return dispatcher;
+    }
+
+
+    public void register(AbstractDatabaseCrossReferenceList<?> list) {
+        lists.add(list);
+    }
+
+
+    public void unregister(AbstractDatabaseCrossReferenceList<?> list) {
+        lists.remove(list);
+    }
+
+
+    public void dispose() {
+        modelManager.removeOntologyChangeListener(ontologyChangeListener);
+        lists.clear();
+    }
+
+
+    private void handleOntologyChanges(List<? extends OWLOntologyChange> changes) {
+        Map<OWLAxiom, List<AbstractDatabaseCrossReferenceList<?>>> listsByAxiom = new HashMap<OWLAxiom, List<AbstractDatabaseCrossReferenceList<?>>>();
+        for (AbstractDatabaseCrossReferenceList<?> list : lists) {
+            if (!list.isShowing()) {
+                continue;
+            }
+            OWLAxiom axiom = list.getRootAxiom();
+            if (axiom == null) {
+                continue;
+            }
+            List<AbstractDatabaseCrossReferenceList<?>> watching = listsByAxiom.get(axiom);
+            if (watching == null) {
+                watching = new ArrayList<AbstractDatabaseCrossReferenceList<?>>(1);
+                listsByAxiom.put(axiom, watching);
+            }
+            watching.add(list);
+        }
+        if (listsByAxiom.isEmpty()) {
+            return;
+        }
+
+        Map<AbstractDatabaseCrossReferenceList<?>, List<OWLOntologyChange>> changesByList = new HashMap<AbstractDatabaseCrossReferenceList<?>, List<OWLOntologyChange>>();
+        for (OWLOntologyChange change : changes) {
+            if (!change.isAxiomChange()) {
+                continue;
+            }
+            List<AbstractDatabaseCrossReferenceList<?>> watching = listsByAxiom.get(change.getAxiom());
+            if (watching == null) {
+                continue;
+            }
+            for (AbstractDatabaseCrossReferenceList<?> list : watching) {
+                List<OWLOntologyChange> listChanges = changesByList.get(list);
+                if (listChanges == null) {
+                    listChanges = new ArrayList<OWLOntologyChange>();
+                    changesByList.put(list, listChanges);
+                }
+                listChanges.add(change);
+            }
+        }
+        for (Map.Entry<AbstractDatabaseCrossReferenceList<?>, List<OWLOntologyChange>> entry : changesByList.entrySet()) {
+            entry.getKey().handleOntologyChanges(entry.getValue());
+        }
+    }
+}
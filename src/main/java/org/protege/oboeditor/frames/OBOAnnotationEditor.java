@@ -39,6 +39,9 @@ public class OBOAnnotationEditor extends AbstractOWLObjectEditor<OWLAnnotation>
 
     private OWLAnnotationProperty lastSelectedProperty;
 
+    // the property the editor was created for, see OBOAnnotationEditorPool
+    private final OWLAnnotationProperty property;
+
     private List<InputVerificationStatusChangedListener> verificationListeners = new ArrayList<InputVerificationStatusChangedListener>();
 
     private boolean status = false;
@@ -60,6 +63,7 @@ public class OBOAnnotationEditor extends AbstractOWLObjectEditor<OWLAnnotation>
 
     public OBOAnnotationEditor(OWLEditorKit owlEditorKit, OWLAnnotationProperty property) {
         this.owlEditorKit = owlEditorKit;
+        this.property = property;
 //        tabbedPane = new JTabbedPane();
         mainPanel = new VerifiedInputJPanel();
         mainPanel.setLayout(new BorderLayout());
@@ -177,6 +181,21 @@ public class OBOAnnotationEditor extends AbstractOWLObjectEditor<OWLAnnotation>
     }
 
 
+    /**
+     * Resets the editor to edit a new annotation with the property it was created for, so that it can be
+     * reused for another dialog.
+     */
+    public void reset() {
+        lastSelectedProperty = property;
+        setEditedObject(null);
+    }
+
+
+    public OWLAnnotationProperty getProperty() {
+        return property;
+    }
+
+
     public OWLAnnotation getAnnotation() {
         OWLAnnotationProperty property = annotationPropertySelector.getSelectedObject();
         if (property != null){
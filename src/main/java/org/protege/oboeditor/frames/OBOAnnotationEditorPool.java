@@ -0,0 +1,97 @@
+package org.protege.oboeditor.frames;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.protege.editor.core.Disposable;
+import org.protege.editor.owl.OWLEditorKit;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLAnnotationProperty;
+
+/**
+ * A pool of {@link OBOAnnotationEditor}s, keyed by annotation property, shared by everything that works with
+ * an editor kit. Creating an editor builds a selector over the whole annotation property hierarchy, so
+ * editors are handed back to the pool when a dialog closes and reset when they are acquired again. The
+ * pool, and the editors in it, are disposed together with the model manager.
+ */
+public class OBOAnnotationEditorPool implements Disposable {
+
+    // the number of idle editors kept per property, more are only needed while several dialogs are open
+    private static final int MAX_IDLE_EDITORS = 2;
+
+    private final OWLEditorKit editorKit;
+
+    private final Map<IRI, Deque<OBOAnnotationEditor>> idleEditors = new HashMap<IRI, Deque<OBOAnnotationEditor>>();
+
+    private boolean disposed = false;
+
+
+    private OBOAnnotationEditorPool(OWLEditorKit editorKit) {
+        this.editorKit = editorKit;
+    }
+
+
+    public static synchronized OBOAnnotationEditorPool get(OWLEditorKit editorKit) {
+        OBOAnnotationEditorPool pool = editorKit.getModelManager().get(OBOAnnotationEditorPool.class);
+        if (pool == null) {
+            pool = new OBOAnnotationEditorPool(editorKit);
+            editorKit.getModelManager().put(OBOAnnotationEditorPool.class, pool);
+        }
+        return pool;
+    }
+
+
+    /**
+     * Gets an editor for the given property, reset so that it edits a new annotation with that property.
+     * The editor should be handed back with {@link #release(OBOAnnotationEditor)} when it is no longer used.
+     */
+    public OBOAnnotationEditor acquire(OWLAnnotationProperty property) {
+        Deque<OBOAnnotationEditor> editors = idleEditors.get(property.getIRI());
+        OBOAnnotationEditor editor = editors == null ? null : editors.poll();
+        if (editor == null) {
+            editor = new OBOAnnotationEditor(editorKit, property);
+        }
+        editor.reset();
+        return editor;
+    }
+
+
+    /**
+     * Hands an editor back to the pool. Editors beyond the number kept per property are disposed.
+     */
+    public void release(OBOAnnotationEditor editor) {
+        if (disposed) {
+            editor.dispose();
+            return;
+        }
+        IRI property = editor.getProperty().getIRI();
+        Deque<OBOAnnotationEditor> editors = idleEditors.get(property);
+        if (editors == null) {
+            editors = new ArrayDeque<OBOAnnotationEditor>(MAX_IDLE_EDITORS);
+            idleEditors.put(property, editors);
+        }
+        if (editors.size() < MAX_IDLE_EDITORS && !editors.contains(editor)) {
+            editors.push(editor);
+        }
+        else if (!editors.contains(editor)) {
+            editor.dispose();
+        }
+    }
+
+
+    public void dispose() {
+        disposed = true;
+        List<OBOAnnotationEditor> editors = new ArrayList<OBOAnnotationEditor>();
+        for (Deque<OBOAnnotationEditor> idle : idleEditors.values()) {
+            editors.addAll(idle);
+        }
+        idleEditors.clear();
+        for (OBOAnnotationEditor editor : editors) {
+            editor.dispose();
+        }
+    }
+}
@@ -2,9 +2,24 @@ package org.protege.oboeditor.frames;
 
 import org.protege.editor.owl.OWLEditorKit;
 import org.protege.editor.owl.ui.frame.AbstractOWLFrame;
+import org.protege.oboeditor.util.AnnotationAssertionIndex;
+import org.protege.oboeditor.util.AnnotationAssertionIndexListener;
 import org.protege.oboeditor.util.OBOVocabulary;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLAnnotationAssertionAxiom;
 import org.semanticweb.owlapi.model.OWLAnnotationSubject;
 import org.semanticweb.owlapi.model.OWLDataFactory;
+import org.semanticweb.owlapi.model.OWLOntology;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * @author Simon Jupp
@@ -13,38 +28,315 @@ import org.semanticweb.owlapi.model.OWLDataFactory;
  */
 public class OBOAnnotationFrame extends AbstractOWLFrame<OWLAnnotationSubject> {
 
+    private final AnnotationAssertionIndex index;
+
+    private final Map<IRI, List<OBOAnnotationFrameSection>> sectionsByProperty = new HashMap<IRI, List<OBOAnnotationFrameSection>>();
+
+    // the root's annotation assertions, fetched once per ontology and bucketed by property IRI
+    private OWLAnnotationSubject bucketedSubject;
+
+    private final Map<OWLOntology, Map<IRI, Set<OWLAnnotationAssertionAxiom>>> buckets = new HashMap<OWLOntology, Map<IRI, Set<OWLAnnotationAssertionAxiom>>>();
+
+    private final AnnotationAssertionIndexListener indexListener = new AnnotationAssertionIndexListener() {
+
+        public void annotationAssertionAdded(OWLOntology ontology, OWLAnnotationAssertionAxiom axiom) {
+            for (OBOAnnotationFrameSection section : getSectionsToUpdate(ontology, axiom)) {
+                section.handleAnnotationAssertionAdded(ontology, axiom);
+            }
+        }
+
+        public void annotationAssertionRemoved(OWLOntology ontology, OWLAnnotationAssertionAxiom axiom) {
+            for (OBOAnnotationFrameSection section : getSectionsToUpdate(ontology, axiom)) {
+                section.handleAnnotationAssertionRemoved(ontology, axiom);
+            }
+        }
+    };
+
+    private static final int MAX_CACHED_SUMMARY_ROWS = 256;
+
+    // bounds the memory held by the cached summary rows, which each copy their axioms
+    private static final int MAX_CACHED_SUMMARY_AXIOMS = 20000;
+
+    private final LinkedHashMap<SummaryRowKey, SummaryRowEntry> summaryRows = new LinkedHashMap<SummaryRowKey, SummaryRowEntry>(16, 0.75f, true);
+
+    private int cachedSummaryAxioms;
+
+    private final List<OBOAnnotationFrameRowListener> rowListeners = new ArrayList<OBOAnnotationFrameRowListener>();
+
 
     public OBOAnnotationFrame(OWLEditorKit man) {
         super(man.getModelManager().getOWLOntologyManager());
-        
+        index = AnnotationAssertionIndex.get(man.getModelManager());
+        index.addListener(indexListener);
+
         final OWLDataFactory factory = man.getModelManager().getOWLDataFactory();
-        
+
         addSection(new OBOTermIDFrameSection(man, "Identifier", this));
-        addSection(new OBOAnnotationFrameSection(man, this, "Alternate Identifier",
+        addOBOSection(new OBOAnnotationFrameSection(man, this, "Alternate Identifier",
                 factory.getOWLAnnotationProperty(OBOVocabulary.OBO_ALTERNATE_ID.getIRI()), -1, false, true));
-        addSection(new OBOAnnotationFrameSection(man, this, "Namespace",
+        addOBOSection(new OBOAnnotationFrameSection(man, this, "Namespace",
                 factory.getOWLAnnotationProperty(OBOVocabulary.OBO_NAMESPACE.getIRI()), 1, false, false));
-		addSection(new OBOAnnotationFrameSection(man, this, "Definition",
+		addOBOSection(new OBOAnnotationFrameSection(man, this, "Definition",
                 factory.getOWLAnnotationProperty(OBOVocabulary.DEFINITION.getIRI()), 1, true, false));
-        addSection(new OBOAnnotationFrameSection(man, this, "Exact synonym",
+        addOBOSection(new OBOAnnotationFrameSection(man, this, "Exact synonym",
                 factory.getOWLAnnotationProperty(OBOVocabulary.HAS_EXACT_SYNONYM.getIRI()), -1, true, true));
-        addSection(new OBOAnnotationFrameSection(man, this, "Related synonym",
+        addOBOSection(new OBOAnnotationFrameSection(man, this, "Related synonym",
                 factory.getOWLAnnotationProperty(OBOVocabulary.HAS_RELATED_SYNONYM.getIRI()), -1, true, true));
-        addSection(new OBOAnnotationFrameSection(man, this, "Broad synonym",
+        addOBOSection(new OBOAnnotationFrameSection(man, this, "Broad synonym",
                 factory.getOWLAnnotationProperty(OBOVocabulary.HAS_BROAD_SYNONYM.getIRI()), -1, true, true));
-        addSection(new OBOAnnotationFrameSection(man, this, "Narrow synonym",
+        addOBOSection(new OBOAnnotationFrameSection(man, this, "Narrow synonym",
                 factory.getOWLAnnotationProperty(OBOVocabulary.HAS_NARROW_SYNONYM.getIRI()), -1, true, true));
-        addSection(new OBOAnnotationFrameSection(man, this, "Comment",
+        addOBOSection(new OBOAnnotationFrameSection(man, this, "Comment",
                 factory.getRDFSComment(), 1, false, false));
-        addSection(new OBOAnnotationFrameSection(man, this, "Subset",
+        addOBOSection(new OBOAnnotationFrameSection(man, this, "Subset",
         		factory.getOWLAnnotationProperty(OBOVocabulary.OBO_SUBSET.getIRI()), -1, true, false));
-        addSection(new OBOAnnotationFrameSection(man, this, "Database Cross References",
+        addOBOSection(new OBOAnnotationFrameSection(man, this, "Database Cross References",
         		factory.getOWLAnnotationProperty(OBOVocabulary.XREF.getIRI()), -1, false, true));
         refill();
     }
-    
+
     public OBOAnnotationFrame(OWLEditorKit man, OBOAnnotationFrameSection section) {
     	super(man.getModelManager().getOWLOntologyManager());
-    	addSection(section);
+    	index = AnnotationAssertionIndex.get(man.getModelManager());
+    	index.addListener(indexListener);
+    	addOBOSection(section.createFullSection(this));
+    }
+
+    private void addOBOSection(OBOAnnotationFrameSection section) {
+        addSection(section);
+        List<OBOAnnotationFrameSection> sections = sectionsByProperty.get(section.property.getIRI());
+        if (sections == null) {
+            sections = new ArrayList<OBOAnnotationFrameSection>(1);
+            sectionsByProperty.put(section.property.getIRI(), sections);
+        }
+        sections.add(section);
+    }
+
+    /**
+     * Gets the annotation assertions with the given subject and property in an ontology. All properties
+     * of a subject are fetched from the index in one go, the first time any section asks for them.
+     */
+    Set<OWLAnnotationAssertionAxiom> getAnnotationAssertionAxioms(OWLOntology ontology, OWLAnnotationSubject subject, IRI property) {
+        if (!subject.equals(bucketedSubject)) {
+            buckets.clear();
+            bucketedSubject = subject;
+        }
+        Map<IRI, Set<OWLAnnotationAssertionAxiom>> properties = buckets.get(ontology);
+        if (properties == null) {
+            properties = index.getAnnotationAssertionAxiomsByProperty(ontology, subject);
+            buckets.put(ontology, properties);
+        }
+        Set<OWLAnnotationAssertionAxiom> axioms = properties.get(property);
+        if (axioms == null) {
+            return Collections.emptySet();
+        }
+        return axioms;
+    }
+
+    /**
+     * Copies the annotation assertions of a subject out of the given ontologies. The ontologies may only be
+     * read on the event dispatch thread, where they are changed, so this must be called there; the copies
+     * can then be turned into a snapshot on any thread.
+     */
+    Map<OWLOntology, List<OWLAnnotationAssertionAxiom>> copyAnnotationAssertionAxioms(OWLAnnotationSubject subject, Collection<OWLOntology> ontologies) {
+        Map<OWLOntology, List<OWLAnnotationAssertionAxiom>> assertions = new HashMap<OWLOntology, List<OWLAnnotationAssertionAxiom>>();
+        for (OWLOntology ontology : ontologies) {
+            assertions.put(ontology, new ArrayList<OWLAnnotationAssertionAxiom>(ontology.getAnnotationAssertionAxioms(subject)));
+        }
+        return assertions;
+    }
+
+    /**
+     * Gets the change count of the index, to be read together with {@link #copyAnnotationAssertionAxioms}.
+     */
+    long getChangeCount() {
+        return index.getChangeCount();
+    }
+
+    /**
+     * Buckets copied annotation assertions of a subject into a snapshot. Touches neither the ontologies nor
+     * the index, so it is safe to call from any thread.
+     * @param changeCount The change count of the index when the assertions were copied.
+     */
+    Snapshot createSnapshot(OWLAnnotationSubject subject, long changeCount, Map<OWLOntology, List<OWLAnnotationAssertionAxiom>> assertions) {
+        Map<OWLOntology, Map<IRI, Set<OWLAnnotationAssertionAxiom>>> properties = new HashMap<OWLOntology, Map<IRI, Set<OWLAnnotationAssertionAxiom>>>();
+        for (Map.Entry<OWLOntology, List<OWLAnnotationAssertionAxiom>> entry : assertions.entrySet()) {
+            if (Thread.currentThread().isInterrupted()) {
+                break;
+            }
+            properties.put(entry.getKey(), AnnotationAssertionIndex.bucketByProperty(entry.getValue()));
+        }
+        return new Snapshot(subject, changeCount, properties);
+    }
+
+    /**
+     * Determines whether the annotation assertions of a subject are already indexed for all the given
+     * ontologies, in which case the frame can be refilled straight away.
+     */
+    boolean isIndexed(OWLAnnotationSubject subject, Collection<OWLOntology> ontologies) {
+        for (OWLOntology ontology : ontologies) {
+            if (!index.isIndexed(ontology, subject)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Indexes subjects that are likely to become the root object soon, while the UI is idle.
+     * @see AnnotationAssertionIndex#prefetch
+     */
+    public void prefetch(Iterator<? extends OWLAnnotationSubject> subjects, Collection<OWLOntology> ontologies) {
+        index.prefetch(subjects, ontologies);
+    }
+
+    /**
+     * Sets the root object, filling the sections from a snapshot. The snapshot is only used, and added to
+     * the index, if the index has not changed since it was taken; otherwise the sections look the
+     * annotations up again.
+     */
+    void setRootObject(Snapshot snapshot) {
+        buckets.clear();
+        bucketedSubject = snapshot.subject;
+        if (snapshot.changeCount == index.getChangeCount()) {
+            buckets.putAll(snapshot.properties);
+            for (Map.Entry<OWLOntology, Map<IRI, Set<OWLAnnotationAssertionAxiom>>> entry : snapshot.properties.entrySet()) {
+                index.index(entry.getKey(), snapshot.subject, entry.getValue(), snapshot.changeCount);
+            }
+        }
+        setRootObject(snapshot.subject);
+    }
+
+    /**
+     * Gets the summary row of a compact section for the given annotation assertions. Summary rows are cached
+     * per section, subject and ontology. The index hands out a new, immutable set whenever the assertions
+     * change, so a cached row is reused only if it was built from the very same set.
+     */
+    OBOAnnotationsFrameSectionSummaryRow getSummaryRow(OBOAnnotationFrameSection section, OWLOntology ontology,
+                                                       OWLAnnotationSubject subject, Collection<OWLAnnotationAssertionAxiom> axioms) {
+        SummaryRowKey key = new SummaryRowKey(section, subject, ontology);
+        SummaryRowEntry entry = summaryRows.get(key);
+        if (entry != null && entry.axioms == axioms) {
+            return entry.row;
+        }
+        OBOAnnotationsFrameSectionSummaryRow row = section.createSummaryRow(ontology, subject, axioms);
+        SummaryRowEntry previous = summaryRows.put(key, new SummaryRowEntry(axioms, row));
+        if (previous != null) {
+            cachedSummaryAxioms -= previous.axioms.size();
+        }
+        cachedSummaryAxioms += axioms.size();
+        Iterator<SummaryRowEntry> eldest = summaryRows.values().iterator();
+        while (eldest.hasNext() && summaryRows.size() > 1
+                && (summaryRows.size() > MAX_CACHED_SUMMARY_ROWS || cachedSummaryAxioms > MAX_CACHED_SUMMARY_AXIOMS)) {
+            cachedSummaryAxioms -= eldest.next().axioms.size();
+            eldest.remove();
+        }
+        return row;
+    }
+
+    private List<OBOAnnotationFrameSection> getSectionsToUpdate(OWLOntology ontology, OWLAnnotationAssertionAxiom axiom) {
+        if (axiom.getSubject().equals(bucketedSubject)) {
+            buckets.remove(ontology);
+        }
+        List<OBOAnnotationFrameSection> sections = sectionsByProperty.get(axiom.getProperty().getIRI());
+        if (sections == null) {
+            return Collections.emptyList();
+        }
+        return sections;
+    }
+
+    public void addRowListener(OBOAnnotationFrameRowListener listener) {
+        rowListeners.add(listener);
+    }
+
+    public void removeRowListener(OBOAnnotationFrameRowListener listener) {
+        rowListeners.remove(listener);
+    }
+
+    void fireRowInserted(OBOAnnotationFrameSection section, int index) {
+        for (OBOAnnotationFrameRowListener listener : new ArrayList<OBOAnnotationFrameRowListener>(rowListeners)) {
+            listener.rowInserted(section, index);
+        }
+    }
+
+    void fireRowRemoved(OBOAnnotationFrameSection section, int index) {
+        for (OBOAnnotationFrameRowListener listener : new ArrayList<OBOAnnotationFrameRowListener>(rowListeners)) {
+            listener.rowRemoved(section, index);
+        }
+    }
+
+    void fireRowChanged(OBOAnnotationFrameSection section, int index) {
+        for (OBOAnnotationFrameRowListener listener : new ArrayList<OBOAnnotationFrameRowListener>(rowListeners)) {
+            listener.rowChanged(section, index);
+        }
+    }
+
+    @Override
+    public void dispose() {
+        index.removeListener(indexListener);
+        summaryRows.clear();
+        super.dispose();
+    }
+
+
+    private static final class SummaryRowKey {
+
+        private final OBOAnnotationFrameSection section;
+
+        private final OWLAnnotationSubject subject;
+
+        private final OWLOntology ontology;
+
+        private SummaryRowKey(OBOAnnotationFrameSection section, OWLAnnotationSubject subject, OWLOntology ontology) {
+            this.section = section;
+            this.subject = subject;
+            this.ontology = ontology;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * System.identityHashCode(section) + subject.hashCode()) + ontology.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof SummaryRowKey)) {
+                return false;
+            }
+            SummaryRowKey other = (SummaryRowKey) obj;
+            return section == other.section && subject.equals(other.subject) && ontology.equals(other.ontology);
+        }
+    }
+
+
+    private static final class SummaryRowEntry {
+
+        private final Collection<OWLAnnotationAssertionAxiom> axioms;
+
+        private final OBOAnnotationsFrameSectionSummaryRow row;
+
+        private SummaryRowEntry(Collection<OWLAnnotationAssertionAxiom> axioms, OBOAnnotationsFrameSectionSummaryRow row) {
+            this.axioms = axioms;
+            this.row = row;
+        }
+    }
+
+
+    /**
+     * The annotation assertions of a subject, bucketed by ontology and property IRI. Immutable.
+     */
+    static final class Snapshot {
+
+        private final OWLAnnotationSubject subject;
+
+        private final long changeCount;
+
+        private final Map<OWLOntology, Map<IRI, Set<OWLAnnotationAssertionAxiom>>> properties;
+
+        private Snapshot(OWLAnnotationSubject subject, long changeCount, Map<OWLOntology, Map<IRI, Set<OWLAnnotationAssertionAxiom>>> properties) {
+            this.subject = subject;
+            this.changeCount = changeCount;
+            this.properties = Collections.unmodifiableMap(properties);
+        }
     }
 }
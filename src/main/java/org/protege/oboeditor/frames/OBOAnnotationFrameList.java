@@ -1,5 +1,6 @@
 package org.protege.oboeditor.frames;
 
+import java.awt.BasicStroke;
 import java.awt.BorderLayout;
 import java.awt.Color;
 import java.awt.Component;
@@ -21,19 +22,30 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.ComponentAdapter;
 import java.awt.event.ComponentEvent;
+import java.awt.event.HierarchyEvent;
+import java.awt.event.HierarchyListener;
 import java.awt.event.InputEvent;
 import java.awt.event.KeyEvent;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseMotionAdapter;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
 
 import javax.swing.AbstractAction;
 import javax.swing.ActionMap;
 import javax.swing.BorderFactory;
 import javax.swing.BoxLayout;
+import javax.swing.DefaultListModel;
 import javax.swing.InputMap;
 import javax.swing.JButton;
 import javax.swing.JComponent;
@@ -45,6 +57,7 @@ import javax.swing.JPanel;
 import javax.swing.JScrollPane;
 import javax.swing.JTextArea;
 import javax.swing.JTextField;
+import javax.swing.JViewport;
 import javax.swing.JWindow;
 import javax.swing.KeyStroke;
 import javax.swing.ListCellRenderer;
@@ -52,9 +65,13 @@ import javax.swing.ListModel;
 import javax.swing.ListSelectionModel;
 import javax.swing.ScrollPaneConstants;
 import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
 import javax.swing.UIManager;
 import javax.swing.border.Border;
+import javax.swing.event.ChangeEvent;
 import javax.swing.event.ChangeListener;
+import javax.swing.event.ListDataEvent;
+import javax.swing.event.ListDataListener;
 import javax.swing.event.ListSelectionEvent;
 import javax.swing.event.ListSelectionListener;
 import javax.swing.event.MouseInputListener;
@@ -96,14 +113,23 @@ import org.protege.editor.owl.ui.view.Cuttable;
 import org.protege.editor.owl.ui.view.Deleteable;
 import org.protege.editor.owl.ui.view.Pasteable;
 import org.protege.oboeditor.panel.DatabaseCrossReferencePanel;
+import org.protege.oboeditor.panel.XrefSynonymUsagePanel;
 import org.protege.oboeditor.renderer.OBOFrameListRenderer;
+import org.protege.oboeditor.util.AnnotationPropertyDeclarations;
+import org.protege.oboeditor.util.OBOVocabulary;
+import org.protege.oboeditor.util.XrefSynonymIndex;
+import org.semanticweb.owlapi.model.OWLAnnotation;
+import org.semanticweb.owlapi.model.OWLAnnotationAssertionAxiom;
 import org.semanticweb.owlapi.model.OWLAnnotationSubject;
 import org.semanticweb.owlapi.model.OWLAxiom;
 import org.semanticweb.owlapi.model.OWLEntity;
 import org.semanticweb.owlapi.model.OWLObject;
+import org.semanticweb.owlapi.model.OWLOntology;
 import org.semanticweb.owlapi.model.OWLOntologyChange;
 import org.semanticweb.owlapi.model.OWLRuntimeException;
 import org.semanticweb.owlapi.model.RemoveAxiom;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * @author Simon Jupp
@@ -112,6 +138,8 @@ import org.semanticweb.owlapi.model.RemoveAxiom;
  */
 public class OBOAnnotationFrameList<R> extends MList implements LinkedObjectComponent, DropTargetListener, Copyable, Pasteable, Cuttable, Deleteable, RefreshableComponent {
 
+    private static final Logger logger = LoggerFactory.getLogger(OBOAnnotationFrameList.class);
+
     private static final Border inferredBorder = new OWLFrameListInferredSectionRowBorder();
 
     public static final Color INFERRED_BG_COLOR = new Color(255, 255, 215);
@@ -153,12 +181,40 @@ public class OBOAnnotationFrameList<R> extends MList implements LinkedObjectComp
 
     private OWLFrameListener listener;
 
+    private DefaultListModel<Object> rowModel = new DefaultListModel<Object>();
+
+    private final OBOAnnotationFrameRowListener rowListener = new OBOAnnotationFrameRowListener() {
+
+        public void rowInserted(OWLFrameSection<?, ?, ?> section, int index) {
+            int listIndex = getListIndex(section, index);
+            if (listIndex != -1 && listIndex <= rowModel.getSize()) {
+                rowModel.add(listIndex, section.getRows().get(index));
+            }
+        }
+
+        public void rowRemoved(OWLFrameSection<?, ?, ?> section, int index) {
+            int listIndex = getListIndex(section, index);
+            if (listIndex != -1 && listIndex < rowModel.getSize()) {
+                rowModel.remove(listIndex);
+            }
+        }
+
+        public void rowChanged(OWLFrameSection<?, ?, ?> section, int index) {
+            int listIndex = getListIndex(section, index);
+            if (listIndex != -1 && listIndex < rowModel.getSize()) {
+                rowModel.set(listIndex, section.getRows().get(index));
+            }
+        }
+    };
+
     private LinkedObjectComponentMediator mediator;
 
     private java.util.List<MListButton> inferredRowButtons;
 
     private OBOXrefButton axiomAnnotationButton;
 
+    private MListButton findOthersButton;
+
     private ChangeListenerMediator changeListenerMediator;
 
 //    private JPopupMenu popupMenu;
@@ -169,6 +225,10 @@ public class OBOAnnotationFrameList<R> extends MList implements LinkedObjectComp
 
     private DatabaseCrossReferencePanel axiomAnnotationPanel;
 
+    private XrefBlockEditor xrefBlockEditor;
+
+    private OWLFrameListUI frameListUI;
+
     private ListSelectionListener selListener = new ListSelectionListener() {
         public void valueChanged(ListSelectionEvent event) {
             handleSelectionEvent(event);
@@ -177,6 +237,12 @@ public class OBOAnnotationFrameList<R> extends MList implements LinkedObjectComp
 
     private boolean axiomSelectionGlobal = true;
 
+    // looks up the annotations of the next root object off the event dispatch thread
+    private SwingWorker<OBOAnnotationFrame.Snapshot, Void> rootObjectLoader;
+
+    // identifies the latest root object request, results of earlier requests are dropped
+    private int rootObjectGeneration;
+
 
     public OBOAnnotationFrameList(OWLEditorKit editorKit, OWLFrame<R> frame) {
         this.editorKit = editorKit;
@@ -220,9 +286,28 @@ public class OBOAnnotationFrameList<R> extends MList implements LinkedObjectComp
             }
         });
 
+        findOthersButton = new MListButton("Other terms with this xref or synonym", Color.BLUE.darker(), new ActionListener() {
+            public void actionPerformed(ActionEvent event) {
+                handleFindOthers();
+            }
+        }) {
+
+            @Override
+            public void paintButtonContent(Graphics2D g) {
+                Rectangle bounds = getBounds();
+                int size = bounds.width;
+                int lens = size / 2;
+                int x = bounds.x + size / 4 - 1;
+                int y = bounds.y + size / 4 - 1;
+                g.setStroke(new BasicStroke(2.0f));
+                g.drawOval(x, y, lens, lens);
+                g.drawLine(x + lens, y + lens, bounds.x + size - size / 4 + 1, bounds.y + size - size / 4 + 1);
+            }
+        };
+
         changeListenerMediator = new ChangeListenerMediator();
         addListSelectionListener(selListener);
-        OWLFrameListUI frameListUI = new OWLFrameListUI();
+        frameListUI = new OWLFrameListUI();
 
         setUI(frameListUI);
     }
@@ -243,6 +328,9 @@ public class OBOAnnotationFrameList<R> extends MList implements LinkedObjectComp
             }
         };
         frame.addFrameListener(listener);
+        if (frame instanceof OBOAnnotationFrame) {
+            ((OBOAnnotationFrame) frame).addRowListener(rowListener);
+        }
     }
 
     public void setHighlightUnsatifiableClasses(boolean b) {
@@ -271,8 +359,25 @@ public class OBOAnnotationFrameList<R> extends MList implements LinkedObjectComp
         return border;
     }
 
+    /**
+     * Enables or disables editing, e.g. while the annotations of a newly selected class are pending. A
+     * disabled list keeps showing its rows but offers no buttons and ignores edits, deletions and drops.
+     */
+    @Override
+    public void setEnabled(boolean enabled) {
+        if (enabled == isEnabled()) {
+            return;
+        }
+        super.setEnabled(enabled);
+        repaint();
+        changeListenerMediator.fireStateChanged(this);
+    }
+
     @Override
 	protected List<MListButton> getSectionButtons(MListSectionHeader header) {
+		if (!isEnabled()) {
+			return Collections.emptyList();
+		}
 		if (header instanceof OBOAnnotationFrameSection) {
 			OBOAnnotationFrameSection section = (OBOAnnotationFrameSection) header;
 			if (section.isCompact()) {
@@ -284,6 +389,9 @@ public class OBOAnnotationFrameList<R> extends MList implements LinkedObjectComp
 
 
 	protected java.util.List<MListButton> getButtons(Object value) {
+        if (!isEnabled()) {
+            return Collections.emptyList();
+        }
         java.util.List<MListButton> buttons = new ArrayList<MListButton>(super.getButtons(value));
         if (value instanceof OWLFrameSectionRow) {
             OWLFrameSectionRow frameRow = (OWLFrameSectionRow) value;
@@ -293,6 +401,9 @@ public class OBOAnnotationFrameList<R> extends MList implements LinkedObjectComp
 					 buttons.add(axiomAnnotationButton);
 			         axiomAnnotationButton.setAnnotationPresent(isAnnotationPresent(frameRow));
 				}
+				if (!XrefSynonymIndex.getIndexedValues(oboRow.getAxiom()).isEmpty()) {
+					buttons.add(findOthersButton);
+				}
 			}
 
             if (getExplanationManager().hasExplanation(frameRow.getAxiom())) {
@@ -346,6 +457,13 @@ public class OBOAnnotationFrameList<R> extends MList implements LinkedObjectComp
                 handleEdit();
             }
         });
+
+        im.put(KeyStroke.getKeyStroke(KeyEvent.VK_X, InputEvent.CTRL_DOWN_MASK | InputEvent.SHIFT_DOWN_MASK), "BULK_XREF");
+        am.put("BULK_XREF", new AbstractAction() {
+            public void actionPerformed(ActionEvent e) {
+                handleBulkXref();
+            }
+        });
     }
 
     public void setWrap(boolean b) {
@@ -387,40 +505,134 @@ public class OBOAnnotationFrameList<R> extends MList implements LinkedObjectComp
 //    }
 
     public void setRootObject(R rootObject) {
+        cancelRootObjectLoader();
+        rootObjectGeneration++;
         frame.setRootObject(rootObject);
         changeListenerMediator.fireStateChanged(this);
     }
 
+    /**
+     * Sets the root object without blocking the event dispatch thread on the annotation lookups. The
+     * annotation assertions are copied out of the ontologies here, on the event dispatch thread, as the
+     * ontologies are not safe to read elsewhere; they are bucketed on a worker thread and the frame is
+     * refilled from the result on the event dispatch thread.
+     * A request that is superseded by a later one, or by {@link #setRootObject}, is cancelled and its
+     * result dropped. Editing is disabled until the new root object is shown, and enabled afterwards.
+     */
+    public void loadRootObject(final R rootObject) {
+        if (!(frame instanceof OBOAnnotationFrame) || !(rootObject instanceof OWLAnnotationSubject)) {
+            setRootObject(rootObject);
+            setEnabled(true);
+            return;
+        }
+        cancelRootObjectLoader();
+        final int generation = ++rootObjectGeneration;
+        final OBOAnnotationFrame oboFrame = (OBOAnnotationFrame) frame;
+        final Set<OWLOntology> ontologies = new HashSet<OWLOntology>(editorKit.getModelManager().getActiveOntologies());
+        if (oboFrame.isIndexed((OWLAnnotationSubject) rootObject, ontologies)) {
+            // prefetched or seen recently, the lookups are cheap enough to do right here
+            frame.setRootObject(rootObject);
+            setEnabled(true);
+            changeListenerMediator.fireStateChanged(this);
+            return;
+        }
+        // the previous root object stays on screen until the new one is loaded, but must not be edited
+        setEnabled(false);
+        final long changeCount = oboFrame.getChangeCount();
+        final Map<OWLOntology, List<OWLAnnotationAssertionAxiom>> assertions =
+                oboFrame.copyAnnotationAssertionAxioms((OWLAnnotationSubject) rootObject, ontologies);
+        rootObjectLoader = new SwingWorker<OBOAnnotationFrame.Snapshot, Void>() {
+
+            @Override
+            protected OBOAnnotationFrame.Snapshot doInBackground() throws Exception {
+                return oboFrame.createSnapshot((OWLAnnotationSubject) rootObject, changeCount, assertions);
+            }
+
+            @Override
+            protected void done() {
+                if (isCancelled() || generation != rootObjectGeneration) {
+                    return;
+                }
+                rootObjectLoader = null;
+                try {
+                    oboFrame.setRootObject(get());
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                catch (ExecutionException e) {
+                    logger.error("Could not load the annotations of {} in the background", rootObject, e.getCause());
+                    frame.setRootObject(rootObject);
+                }
+                setEnabled(true);
+                changeListenerMediator.fireStateChanged(OBOAnnotationFrameList.this);
+            }
+        };
+        rootObjectLoader.execute();
+    }
+
+    private void cancelRootObjectLoader() {
+        if (rootObjectLoader != null) {
+            rootObjectLoader.cancel(true);
+            rootObjectLoader = null;
+        }
+    }
+
     public R getRootObject() {
         return frame.getRootObject();
     }
 
     public void dispose() {
+        cancelRootObjectLoader();
         if (axiomAnnotationPanel != null) {
             axiomAnnotationPanel.dispose();
         }
         removeListSelectionListener(selListener);
         frame.removeFrameListener(listener);
+        if (frame instanceof OBOAnnotationFrame) {
+            ((OBOAnnotationFrame) frame).removeRowListener(rowListener);
+        }
+        cellRenderer.dispose();
         frame.dispose();
     }
 
     private void refillRows() {
-        java.util.List<OWLFrameObject> rows = new ArrayList<OWLFrameObject>();
+        DefaultListModel<Object> rows = new DefaultListModel<Object>();
         for (OWLFrameSection<R, ? extends Object, ? extends Object> section : frame.getFrameSections()) {
-            rows.add(section);
+            rows.addElement(section);
             for (OWLFrameSectionRow row : section.getRows()) {
-            	rows.add(row);
+            	rows.addElement(row);
             }
         }
-        setListData(rows.toArray());
+        rowModel = rows;
+        setModel(rows);
+    }
+
+    /**
+     * Gets the list index of a row, given its section and its index within that section. Sections before
+     * the given one are assumed to be in sync with the list model.
+     */
+    private int getListIndex(OWLFrameSection<?, ?, ?> section, int rowIndex) {
+        int index = 0;
+        for (OWLFrameSection<R, ? extends Object, ? extends Object> s : frame.getFrameSections()) {
+            if (s == section) {
+                return index + 1 + rowIndex;
+            }
+            index += 1 + s.getRows().size();
+        }
+        return -1;
     }
 
     public boolean canDelete() {
-        return getSelectedIndex() != -1;
+        return isEnabled() && getSelectedIndex() != -1;
     }
 
 
     public void handleDelete() {
+        if (!isEnabled()) {
+            return;
+        }
         int[] selIndices = getSelectedIndices();
         java.util.List<OWLOntologyChange> changes = new ArrayList<OWLOntologyChange>();
         for (int selIndex : selIndices) {
@@ -431,12 +643,11 @@ public class OBOAnnotationFrameList<R> extends MList implements LinkedObjectComp
             }
         }
         editorKit.getModelManager().applyChanges(changes);
-        refreshComponent();
     }
 
     
     protected void handleModifySummayRow() {
-    	if (getRootObject() == null) {
+    	if (getRootObject() == null || !isEnabled()) {
     		return;
     	}
     	final Object val = getSelectedValue();
@@ -444,7 +655,9 @@ public class OBOAnnotationFrameList<R> extends MList implements LinkedObjectComp
     		final OBOAnnotationFrameSection section = (OBOAnnotationFrameSection) val;
     		
     		final OBOAnnotationFrameList<OWLAnnotationSubject> editorContent;
-    		editorContent = new OBOAnnotationFrameList<OWLAnnotationSubject> (editorKit, new OBOAnnotationFrame(editorKit, section.createFullSection()));
+    		editorContent = new OBOAnnotationFrameList<OWLAnnotationSubject> (editorKit, new OBOAnnotationFrame(editorKit, section));
+    		// full sections can have thousands of rows, only measure the ones that are actually shown
+    		editorContent.setVirtualized(true);
     		editorContent.setRootObject((OWLAnnotationSubject) getRootObject());
     		
     		EventQueue.invokeLater(new Runnable()
@@ -454,6 +667,11 @@ public class OBOAnnotationFrameList<R> extends MList implements LinkedObjectComp
                 {
                     JFrame frame = new JFrame("Editor: " + section.getLabel());
                     frame.setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
+                    frame.addWindowListener(new WindowAdapter() {
+                        public void windowClosed(WindowEvent e) {
+                            editorContent.dispose();
+                        }
+                    });
                     try 
                     {
                        UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
@@ -482,7 +700,7 @@ public class OBOAnnotationFrameList<R> extends MList implements LinkedObjectComp
 
 
     protected void handleEdit() {
-        if (getRootObject() == null) {
+        if (getRootObject() == null || !isEnabled()) {
             return;
         }
         final Object val = getSelectedValue();
@@ -501,7 +719,6 @@ public class OBOAnnotationFrameList<R> extends MList implements LinkedObjectComp
             showEditorDialog(row, new EditHandler() {
                 public void handleEditFinished(OWLObjectEditor editor) {
                     editor.getHandler().handleEditingFinished(editor.getEditedObjects());
-                    refreshComponent();
                 }
             });
         }
@@ -595,7 +812,10 @@ public class OBOAnnotationFrameList<R> extends MList implements LinkedObjectComp
                     ((VerifiedInputEditor) editor).removeStatusChangedListener(verificationListener);
                 }
                 // editor.dispose();
-                if (isRowEditor) {
+                if (editor instanceof OBOAnnotationEditor) {
+                    OBOAnnotationEditorPool.get(editorKit).release((OBOAnnotationEditor) editor);
+                }
+                else if (isRowEditor) {
                     editor.dispose();
                 }
             }
@@ -650,6 +870,10 @@ public class OBOAnnotationFrameList<R> extends MList implements LinkedObjectComp
         if (!(obj instanceof OWLFrameSectionRow)) {
             return;
         }
+        if (getXrefRowSelection().size() > 1) {
+            handleBulkXref();
+            return;
+        }
         OWLFrameSectionRow row = (OWLFrameSectionRow) obj;
         OWLAxiom ax = row.getAxiom();
 
@@ -661,6 +885,84 @@ public class OBOAnnotationFrameList<R> extends MList implements LinkedObjectComp
     }
 
 
+    /**
+     * Adds a block of xrefs to every selected row that allows xrefs, e.g. one PMID to many synonyms, as a
+     * single change list.
+     */
+    public void handleBulkXref() {
+        if (!isEnabled()) {
+            return;
+        }
+        Map<OWLOntology, Set<OWLAxiom>> axioms = getXrefRowSelection();
+        if (axioms.isEmpty()) {
+            return;
+        }
+        if (xrefBlockEditor == null) {
+            xrefBlockEditor = new XrefBlockEditor(editorKit);
+        }
+        xrefBlockEditor.clear();
+        int count = 0;
+        for (Set<OWLAxiom> ontologyAxioms : axioms.values()) {
+            count += ontologyAxioms.size();
+        }
+        int ret = new UIHelper(editorKit).showDialog("Xref for " + count + " selected axioms", xrefBlockEditor.getEditorComponent(), null);
+        if (ret != JOptionPane.OK_OPTION) {
+            return;
+        }
+        java.util.List<OWLAnnotation> annots = xrefBlockEditor.getXrefs();
+        if (annots.isEmpty()) {
+            return;
+        }
+        java.util.List<OWLOntologyChange> changes = new ArrayList<OWLOntologyChange>();
+        for (Map.Entry<OWLOntology, Set<OWLAxiom>> entry : axioms.entrySet()) {
+            for (OWLAxiom ax : entry.getValue()) {
+                DatabaseCrossReferenceList.getAddChanges(entry.getKey(), ax, annots, changes);
+            }
+        }
+        if (!changes.isEmpty()) {
+            // declare the xref property in the same change list, so that the whole block is undone at once
+            changes.addAll(0, AnnotationPropertyDeclarations.get(editorKit.getModelManager()).getDeclarationChanges(
+                    Collections.singleton(OBOVocabulary.XREF.getIRI())));
+            editorKit.getModelManager().applyChanges(changes);
+        }
+    }
+
+
+    private Map<OWLOntology, Set<OWLAxiom>> getXrefRowSelection() {
+        Map<OWLOntology, Set<OWLAxiom>> axioms = new LinkedHashMap<OWLOntology, Set<OWLAxiom>>();
+        for (Object selObject : getSelectedValues()) {
+            if (selObject instanceof OBOAnnotationsFrameSectionRow) {
+                OBOAnnotationsFrameSectionRow row = (OBOAnnotationsFrameSectionRow) selObject;
+                if (row.isAllowXrefs() && !row.isInferred() && row.getOntology() != null) {
+                    Set<OWLAxiom> ontologyAxioms = axioms.get(row.getOntology());
+                    if (ontologyAxioms == null) {
+                        ontologyAxioms = new LinkedHashSet<OWLAxiom>();
+                        axioms.put(row.getOntology(), ontologyAxioms);
+                    }
+                    ontologyAxioms.add(row.getAxiom());
+                }
+            }
+        }
+        return axioms;
+    }
+
+
+    /**
+     * Shows the other terms that share the xrefs or synonym of the selected row.
+     */
+    public void handleFindOthers() {
+        Object obj = getSelectedValue();
+        if (!(obj instanceof OBOAnnotationsFrameSectionRow)) {
+            return;
+        }
+        OWLAnnotationAssertionAxiom ax = ((OBOAnnotationsFrameSectionRow) obj).getAxiom();
+        Set<String> values = XrefSynonymIndex.getIndexedValues(ax);
+        if (!values.isEmpty()) {
+            XrefSynonymUsagePanel.showDialog(editorKit, values, ax.getSubject());
+        }
+    }
+
+
     private boolean isAnnotationPresent(OWLFrameSectionRow row) {
         OWLAxiom ax = row.getAxiom();
         return (!ax.getAnnotations().isEmpty());
@@ -703,6 +1005,25 @@ public class OBOAnnotationFrameList<R> extends MList implements LinkedObjectComp
         mediator.setLinkedObject(object);
     }
 
+    /**
+     * Gets the index of the row at the given y coordinate.  The lookup is a
+     * binary search over the cumulative row heights.
+     * @return The index of the closest row, or -1 if the list is empty.
+     */
+    public int rowAtY(int y) {
+        return frameListUI.rowAtY(y);
+    }
+
+    /**
+     * Sets whether rows are only measured once they become visible.  Rows that
+     * have not been shown yet are laid out with an estimated height, which is
+     * corrected when they are scrolled into view.  This keeps sections with
+     * thousands of rows quick to open.
+     */
+    public void setVirtualized(boolean virtualized) {
+        frameListUI.setVirtualized(virtualized);
+    }
+
     // DnD Stuff
     private boolean dragOver;
 
@@ -725,6 +1046,10 @@ public class OBOAnnotationFrameList<R> extends MList implements LinkedObjectComp
     }
 
     public void drop(DropTargetDropEvent dtde) {
+        if (!isEnabled()) {
+            dtde.rejectDrop();
+            return;
+        }
         if (dtde.getTransferable().isDataFlavorSupported(OWLObjectDataFlavor.OWL_OBJECT_DATA_FLAVOR)) {
             try {
                 java.util.List<OWLObject> object = (java.util.List<OWLObject>) dtde.getTransferable().getTransferData(OWLObjectDataFlavor.OWL_OBJECT_DATA_FLAVOR);
@@ -751,7 +1076,7 @@ public class OBOAnnotationFrameList<R> extends MList implements LinkedObjectComp
     //
     // /////////////////////////////////////////////////////////////////////////////////////////////////////////
     public boolean canPaste(java.util.List<OWLObject> objects) {
-        if (getRootObject() == null) {
+        if (getRootObject() == null || !isEnabled()) {
             return false;
         }
         return getSelectedValue() instanceof OWLFrameSection && ((OWLFrameSection) getSelectedValue()).canAcceptDrop(objects);
@@ -793,7 +1118,7 @@ public class OBOAnnotationFrameList<R> extends MList implements LinkedObjectComp
     //
     // /////////////////////////////////////////////////////////////////////////////////////////////////////////
     public boolean canCut() {
-        return !getCuttableObjects().isEmpty();
+        return isEnabled() && !getCuttableObjects().isEmpty();
     }
 
     private java.util.List<OWLObject> getCuttableObjects() {
@@ -855,7 +1180,51 @@ public class OBOAnnotationFrameList<R> extends MList implements LinkedObjectComp
 
         private Point lastMouseDownPoint;
 
-        private int[] cumulativeCellHeight;
+        private int[] cumulativeCellHeight = new int[0];
+
+        // cached row sizes, -1 marks a row that has to be measured again
+        private int[] rowHeights = new int[0];
+
+        private int[] rowWidths = new int[0];
+
+        // cumulativeCellHeight is valid for all rows before this one
+        private int firstChangedRow;
+
+        private ListModel layoutModel;
+
+        private ListCellRenderer layoutRenderer;
+
+        private int layoutWidth = -1;
+
+        private static final int DEFAULT_ESTIMATED_ROW_HEIGHT = 40;
+
+        private boolean virtualized = false;
+
+        private JViewport viewport;
+
+        // rows that are scrolled into view are measured with the next layout, never while painting
+        private final ChangeListener viewportListener = new ChangeListener() {
+            public void stateChanged(ChangeEvent e) {
+                if (virtualized && hasVisibleEstimatedRows()) {
+                    updateLayoutStateNeeded |= modelChanged;
+                    list.revalidate();
+                    list.repaint();
+                }
+            }
+        };
+
+        private final HierarchyListener viewportTracker = new HierarchyListener() {
+            public void hierarchyChanged(HierarchyEvent e) {
+                if ((e.getChangeFlags() & HierarchyEvent.PARENT_CHANGED) != 0) {
+                    setViewport((JViewport) SwingUtilities.getAncestorOfClass(JViewport.class, list));
+                }
+            }
+        };
+
+        // running totals of measured row heights, used to estimate rows that were not measured yet
+        private long measuredHeightSum;
+
+        private int measuredRowCount;
 
 
         // As BasicListUI is implemented with windows keystrokes, we need to
@@ -930,7 +1299,27 @@ public class OBOAnnotationFrameList<R> extends MList implements LinkedObjectComp
 
 
         protected void updateLayoutState() {
-            cumulativeCellHeight = new int[list.getModel().getSize()];
+            ListModel dataModel = list.getModel();
+            int dataModelSize = dataModel.getSize();
+            ListCellRenderer renderer = list.getCellRenderer();
+            int availableWidth = getAvailableWidth();
+            /*
+             * Cached row sizes stay valid until the rows change (see createListDataListener) or until
+             * the model, the renderer or the width available to the renderer changes.
+             */
+            if (dataModel != layoutModel || renderer != layoutRenderer || availableWidth != layoutWidth
+                    || rowHeights.length != dataModelSize || cumulativeCellHeight.length != dataModelSize) {
+                rowHeights = new int[dataModelSize];
+                rowWidths = new int[dataModelSize];
+                Arrays.fill(rowHeights, -1);
+                cumulativeCellHeight = new int[dataModelSize];
+                firstChangedRow = 0;
+                measuredHeightSum = 0;
+                measuredRowCount = 0;
+                layoutModel = dataModel;
+                layoutRenderer = renderer;
+                layoutWidth = availableWidth;
+            }
                 /*
                     * If both JList fixedCellWidth and fixedCellHeight have been set,
                     * then initialize cellWidth and cellHeight, and set cellHeights to
@@ -945,55 +1334,320 @@ public class OBOAnnotationFrameList<R> extends MList implements LinkedObjectComp
             }
             else {
                 cellHeight = -1;
-                cellHeights = new int[list.getModel().getSize()];
+                cellHeights = rowHeights;
             }
                 /*
                     * If either of JList fixedCellWidth and fixedCellHeight haven't
-                    * been set, then initialize cellWidth and cellHeights by scanning
-                    * through the entire model. Note: if the renderer is null, we just
-                    * set cellWidth and cellHeights[*] to zero, if they're not set
-                    * already.
+                    * been set, then initialize cellWidth and cellHeights. Only rows
+                    * that changed since the last layout are measured, and the
+                    * cumulative heights are only recomputed from the first changed
+                    * row onwards. Note: if the renderer is null, we just set
+                    * cellWidth and cellHeights[*] to zero.
                     */
             if (fixedCellWidth == -1 || fixedCellHeight == -1) {
-                ListModel dataModel = list.getModel();
-                int dataModelSize = dataModel.getSize();
-                ListCellRenderer renderer = list.getCellRenderer();
                 if (renderer != null) {
-                    int cumulativeHeight = 0;
-                    for (int index = 0; index < dataModelSize; index++) {
-                        Object value = dataModel.getElementAt(index);
-                        if (isFixedCellHeightRow(index)) {
-                            if (fixedCellHeight == -1) {
-                                cellHeights[index] = 22;
-                            }
-                        }
-                        else {
-                            Component c = renderer.getListCellRendererComponent(list, value, index, false, false);
-                            rendererPane.add(c);
-                            Dimension cellSize = c.getPreferredSize();
-                            if (fixedCellWidth == -1) {
-                                cellWidth = Math.max(cellSize.width, cellWidth);
+                    for (int index = firstChangedRow; index < dataModelSize; index++) {
+                        if (rowHeights[index] == -1) {
+                            if (virtualized && !isFixedCellHeightRow(index)) {
+                                estimateRow(index);
                             }
-                            if (fixedCellHeight == -1) {
-                                cellHeights[index] = cellSize.height;
+                            else {
+                                measureRow(renderer, dataModel, index);
                             }
                         }
-                        cumulativeHeight += cellHeights[index];
-                        cumulativeCellHeight[index] = cumulativeHeight;
+                    }
+                    updateCumulativeCellHeight(firstChangedRow);
+                    if (virtualized) {
+                        measureVisibleRows(renderer, dataModel);
+                    }
+                    if (fixedCellWidth == -1) {
+                        for (int index = 0; index < dataModelSize; index++) {
+                            cellWidth = Math.max(rowWidths[index], cellWidth);
+                        }
                     }
                 }
                 else {
                     if (cellWidth == -1) {
                         cellWidth = 0;
                     }
-                    if (cellHeights == null) {
-                        cellHeights = new int[dataModelSize];
-                    }
-                    for (int index = 0; index < dataModelSize; index++) {
-                        cellHeights[index] = 0;
+                    Arrays.fill(rowHeights, 0);
+                    Arrays.fill(cumulativeCellHeight, 0);
+                    cellHeights = rowHeights;
+                }
+            }
+            firstChangedRow = dataModelSize;
+        }
+
+
+        private void updateCumulativeCellHeight(int fromIndex) {
+            int cumulativeHeight = fromIndex > 0 ? cumulativeCellHeight[fromIndex - 1] : 0;
+            for (int index = fromIndex; index < rowHeights.length; index++) {
+                cumulativeHeight += rowHeights[index];
+                cumulativeCellHeight[index] = cumulativeHeight;
+            }
+        }
+
+
+        private void measureRow(ListCellRenderer renderer, ListModel dataModel, int index) {
+            if (isFixedCellHeightRow(index)) {
+                rowHeights[index] = 22;
+                rowWidths[index] = 0;
+            }
+            else {
+                Object value = dataModel.getElementAt(index);
+                Component c = renderer.getListCellRendererComponent(list, value, index, false, false);
+                rendererPane.add(c);
+                Dimension cellSize = c.getPreferredSize();
+                rowHeights[index] = cellSize.height;
+                rowWidths[index] = cellSize.width;
+                measuredHeightSum += cellSize.height;
+                measuredRowCount++;
+            }
+        }
+
+
+        /**
+         * Gives a row that has not been shown yet an estimated height.  A width of
+         * -1 marks the row as estimated, so that it gets measured once it is visible.
+         */
+        private void estimateRow(int index) {
+            rowHeights[index] = measuredRowCount == 0 ? DEFAULT_ESTIMATED_ROW_HEIGHT : (int) (measuredHeightSum / measuredRowCount);
+            rowWidths[index] = -1;
+        }
+
+
+        public void setVirtualized(boolean virtualized) {
+            if (this.virtualized != virtualized) {
+                this.virtualized = virtualized;
+                rowHeights = new int[0];
+                updateLayoutStateNeeded |= modelChanged;
+                if (list != null) {
+                    list.revalidate();
+                    list.repaint();
+                }
+            }
+        }
+
+
+        protected void installListeners() {
+            super.installListeners();
+            list.addHierarchyListener(viewportTracker);
+            setViewport((JViewport) SwingUtilities.getAncestorOfClass(JViewport.class, list));
+        }
+
+
+        protected void uninstallListeners() {
+            list.removeHierarchyListener(viewportTracker);
+            setViewport(null);
+            super.uninstallListeners();
+        }
+
+
+        private void setViewport(JViewport newViewport) {
+            if (viewport != newViewport) {
+                if (viewport != null) {
+                    viewport.removeChangeListener(viewportListener);
+                }
+                viewport = newViewport;
+                if (viewport != null) {
+                    viewport.addChangeListener(viewportListener);
+                }
+            }
+        }
+
+
+        /**
+         * Determines whether any of the rows in the visible part of the list still has an estimated height.
+         */
+        private boolean hasVisibleEstimatedRows() {
+            int size = list.getModel().getSize();
+            if (cellHeights == null || rowWidths.length != size || cumulativeCellHeight.length != size) {
+                return false;
+            }
+            Rectangle area = list.getVisibleRect();
+            int first = findRow(area.y);
+            int last = findRow(area.y + area.height);
+            for (int index = Math.max(first, 0); index <= last; index++) {
+                if (rowWidths[index] == -1) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+
+        /**
+         * Measures the estimated rows in the visible part of the list, correcting
+         * the cumulative heights as it goes.  Correcting a height can move other
+         * rows into view, so this repeats until every visible row is measured.
+         * Only called while the layout state is updated.
+         */
+        private void measureVisibleRows(ListCellRenderer renderer, ListModel dataModel) {
+            if (cellHeights == null) {
+                return;
+            }
+            Rectangle area = list.getVisibleRect();
+            while (true) {
+                int first = findRow(area.y);
+                int last = findRow(area.y + area.height);
+                int firstMeasured = -1;
+                for (int index = Math.max(first, 0); index <= last; index++) {
+                    if (rowWidths[index] == -1) {
+                        measureRow(renderer, dataModel, index);
+                        if (firstMeasured == -1) {
+                            firstMeasured = index;
+                        }
                     }
                 }
+                if (firstMeasured == -1) {
+                    break;
+                }
+                updateCumulativeCellHeight(firstMeasured);
+            }
+        }
+
+
+        /**
+         * Gets the width that the cell renderer lays rows out in. Row heights depend on it because
+         * long annotation values wrap.
+         */
+        private int getAvailableWidth() {
+            JViewport vp = (JViewport) SwingUtilities.getAncestorOfClass(JViewport.class, list);
+            if (vp != null) {
+                return vp.getViewRect().width;
+            }
+            return list.getWidth();
+        }
+
+
+        protected ListDataListener createListDataListener() {
+            final ListDataListener delegate = super.createListDataListener();
+            return new ListDataListener() {
+
+                public void intervalAdded(ListDataEvent e) {
+                    rowsInserted(Math.min(e.getIndex0(), e.getIndex1()), Math.max(e.getIndex0(), e.getIndex1()));
+                    delegate.intervalAdded(e);
+                }
+
+                public void intervalRemoved(ListDataEvent e) {
+                    rowsRemoved(Math.min(e.getIndex0(), e.getIndex1()), Math.max(e.getIndex0(), e.getIndex1()));
+                    delegate.intervalRemoved(e);
+                }
+
+                public void contentsChanged(ListDataEvent e) {
+                    rowsChanged(Math.min(e.getIndex0(), e.getIndex1()), Math.max(e.getIndex0(), e.getIndex1()));
+                    delegate.contentsChanged(e);
+                }
+            };
+        }
+
+
+        private void rowsInserted(int index0, int index1) {
+            if (index0 < 0 || index0 > rowHeights.length) {
+                rowHeights = new int[0];
+                return;
+            }
+            int count = index1 - index0 + 1;
+            rowHeights = insertRows(rowHeights, index0, count);
+            rowWidths = insertRows(rowWidths, index0, count);
+            cumulativeCellHeight = insertRows(cumulativeCellHeight, index0, count);
+            // the row above may have become or stopped being the last row of its section
+            invalidateRows(index0 - 1, index0 - 1);
+            firstChangedRow = Math.min(firstChangedRow, Math.max(0, index0 - 1));
+        }
+
+
+        private void rowsRemoved(int index0, int index1) {
+            if (index0 < 0 || index1 >= rowHeights.length) {
+                rowHeights = new int[0];
+                return;
+            }
+            rowHeights = removeRows(rowHeights, index0, index1);
+            rowWidths = removeRows(rowWidths, index0, index1);
+            cumulativeCellHeight = removeRows(cumulativeCellHeight, index0, index1);
+            invalidateRows(index0 - 1, index0 - 1);
+            firstChangedRow = Math.min(firstChangedRow, Math.max(0, index0 - 1));
+        }
+
+
+        private void rowsChanged(int index0, int index1) {
+            if (index0 < 0 || index1 >= rowHeights.length) {
+                rowHeights = new int[0];
+                return;
+            }
+            invalidateRows(index0 - 1, index1);
+            firstChangedRow = Math.min(firstChangedRow, Math.max(0, index0 - 1));
+        }
+
+
+        private void invalidateRows(int index0, int index1) {
+            for (int index = Math.max(0, index0); index <= index1 && index < rowHeights.length; index++) {
+                rowHeights[index] = -1;
+            }
+        }
+
+
+        private int[] insertRows(int[] values, int index, int count) {
+            int[] result = new int[values.length + count];
+            System.arraycopy(values, 0, result, 0, index);
+            Arrays.fill(result, index, index + count, -1);
+            System.arraycopy(values, index, result, index + count, values.length - index);
+            return result;
+        }
+
+
+        private int[] removeRows(int[] values, int index0, int index1) {
+            int count = index1 - index0 + 1;
+            int[] result = new int[values.length - count];
+            System.arraycopy(values, 0, result, 0, index0);
+            System.arraycopy(values, index1 + 1, result, index0, values.length - index1 - 1);
+            return result;
+        }
+
+
+        /**
+         * Gets the index of the row that contains the given y coordinate, using a
+         * binary search over cumulativeCellHeight.  Coordinates above the first or
+         * below the last row map to the first or last row respectively.
+         * @return The row index, or -1 if the list is empty.
+         */
+        public int rowAtY(int y) {
+            maybeUpdateLayoutState();
+            return findRow(y);
+        }
+
+
+        private int findRow(int y) {
+            int size = list.getModel().getSize();
+            if (size == 0) {
+                return -1;
+            }
+            if (cellHeights == null || cumulativeCellHeight.length != size) {
+                return super.locationToIndex(list, new Point(list.getInsets().left, y));
+            }
+            int low = 0;
+            int high = size - 1;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (cumulativeCellHeight[mid] <= y) {
+                    low = mid + 1;
+                }
+                else {
+                    high = mid;
+                }
             }
+            return low;
+        }
+
+
+        public int locationToIndex(JList list, Point location) {
+            return rowAtY(location.y);
+        }
+
+
+        public Point indexToLocation(JList list, int index) {
+            Rectangle bounds = getCellBounds(list, index, index);
+            return bounds == null ? null : bounds.getLocation();
         }
 
 
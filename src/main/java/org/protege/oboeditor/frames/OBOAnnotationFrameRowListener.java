@@ -0,0 +1,17 @@
+package org.protege.oboeditor.frames;
+
+import org.protege.editor.owl.ui.frame.OWLFrameSection;
+
+/**
+ * Receives fine grained notifications about single rows of an {@link OBOAnnotationFrame} section that
+ * were inserted, removed or replaced in response to an ontology change. The index is the position of the
+ * row within {@link OWLFrameSection#getRows()} after the change.
+ */
+public interface OBOAnnotationFrameRowListener {
+
+    void rowInserted(OWLFrameSection<?, ?, ?> section, int index);
+
+    void rowRemoved(OWLFrameSection<?, ?, ?> section, int index);
+
+    void rowChanged(OWLFrameSection<?, ?, ?> section, int index);
+}
@@ -4,8 +4,8 @@ import org.protege.editor.owl.OWLEditorKit;
 import org.protege.editor.owl.model.OWLModelManager;
 import org.protege.editor.owl.ui.editor.OWLObjectEditor;
 import org.protege.editor.owl.ui.frame.AbstractOWLFrameSection;
-import org.protege.editor.owl.ui.frame.OWLFrame;
 import org.protege.editor.owl.ui.frame.OWLFrameSectionRow;
+import org.protege.oboeditor.util.AnnotationPropertyDeclarations;
 import org.semanticweb.owlapi.model.*;
 
 import java.util.*;
@@ -26,9 +26,19 @@ public class OBOAnnotationFrameSection extends AbstractOWLFrameSection<OWLAnnota
 
     final OWLAnnotationProperty property;
 
+    private final OBOAnnotationFrame frame;
 
-    public OBOAnnotationFrameSection(OWLEditorKit editorKit, OWLFrame<? extends OWLAnnotationSubject> frame, String label, OWLAnnotationProperty property, int max, boolean allowXrefs, boolean compact) {
+    // maintained here rather than through addRow, so that single rows can be inserted and removed in place
+    private final List<OWLFrameSectionRow<OWLAnnotationSubject, OWLAnnotationAssertionAxiom, OWLAnnotation>> rows =
+            new ArrayList<OWLFrameSectionRow<OWLAnnotationSubject, OWLAnnotationAssertionAxiom, OWLAnnotation>>();
+
+    // number of annotations with the property on the root, hidden or not, kept up to date by refill and the change handlers
+    private int annotationCount;
+
+
+    public OBOAnnotationFrameSection(OWLEditorKit editorKit, OBOAnnotationFrame frame, String label, OWLAnnotationProperty property, int max, boolean allowXrefs, boolean compact) {
         super(editorKit, label, "Entity annotation", frame);
+        this.frame = frame;
         this.LABEL = label;
         this.property = property;
         comparator = new OWLAnnotationSectionRowComparator(editorKit.getModelManager());
@@ -38,61 +48,60 @@ public class OBOAnnotationFrameSection extends AbstractOWLFrameSection<OWLAnnota
     }
 
 
-    public OBOAnnotationFrameSection createFullSection() {
-    	return new OBOAnnotationFrameSection(getOWLEditorKit(), getFrame(), LABEL, property, maxCardinality, allowXrefs, false);
+    public OBOAnnotationFrameSection createFullSection(OBOAnnotationFrame frame) {
+    	return new OBOAnnotationFrameSection(getOWLEditorKit(), frame, LABEL, property, maxCardinality, allowXrefs, false);
     }
 
     @Override
     protected void refill(OWLOntology ontology) {
-        final boolean hidden = getOWLEditorKit().getWorkspace().isHiddenAnnotationURI(property.getIRI().toURI());
+        final boolean hidden = isHidden();
         final OWLAnnotationSubject annotationSubject = getRootObject();
-
-        Set<OWLAnnotationProperty> filterProperty = new HashSet<OWLAnnotationProperty>();
-        filterProperty.add(property);
-        
+        final Collection<OWLAnnotationAssertionAxiom> relevantAxioms = frame.getAnnotationAssertionAxioms(ontology, annotationSubject, property.getIRI());
+        annotationCount += relevantAxioms.size();
         
         if (hidden) {
             setLabel(LABEL + " (some annotations are hidden)");
         }
         else {
-        	Collection<OWLAnnotationAssertionAxiom> relevantAxioms = filterAxioms(ontology.getAnnotationAssertionAxioms(annotationSubject));
         	renderAxioms(relevantAxioms, ontology, annotationSubject);
             setLabel(LABEL);
         }
 
     }
     
-    private Collection<OWLAnnotationAssertionAxiom> filterAxioms(Collection<OWLAnnotationAssertionAxiom> axioms) {
-    	if (axioms == null || axioms.isEmpty()) {
-			return Collections.emptySet();
-		}
-    	List<OWLAnnotationAssertionAxiom> filtered = new ArrayList<OWLAnnotationAssertionAxiom>();
-    	for(OWLAnnotationAssertionAxiom ax : axioms) {
-    		if (property.equals(ax.getProperty())) {
-    			filtered.add(ax);
-    		}
-    	}
-    	return filtered;
-    }
-    
     private void renderAxioms(Collection<OWLAnnotationAssertionAxiom> axioms, OWLOntology ontology, OWLAnnotationSubject annotationSubject) {
     	if (compact == false) {
     		for (OWLAnnotationAssertionAxiom ax : axioms) {
     			if (ax != null) {
-    				addRow(new OBOAnnotationsFrameSectionRow(getOWLEditorKit(), this, ontology, annotationSubject, ax, allowXrefs));
+    				rows.add(new OBOAnnotationsFrameSectionRow(getOWLEditorKit(), this, ontology, annotationSubject, ax, allowXrefs));
     			}
 			}
+    		Collections.sort(rows, comparator);
     	}
     	else {
     		if (axioms != null && !axioms.isEmpty()) {
-    			addRow(new OBOAnnotationsFrameSectionSummaryRow(getOWLEditorKit(), this, ontology, annotationSubject, axioms, allowXrefs));
+    			rows.add(frame.getSummaryRow(this, ontology, annotationSubject, axioms));
     		}
     	}
     }
 
+    OBOAnnotationsFrameSectionSummaryRow createSummaryRow(OWLOntology ontology, OWLAnnotationSubject annotationSubject, Collection<OWLAnnotationAssertionAxiom> axioms) {
+        return new OBOAnnotationsFrameSectionSummaryRow(getOWLEditorKit(), this, ontology, annotationSubject, axioms, allowXrefs);
+    }
+
+    private boolean isHidden() {
+        return getOWLEditorKit().getWorkspace().isHiddenAnnotationURI(property.getIRI().toURI());
+    }
+
     @Override
     protected void clear() {
+        rows.clear();
+        annotationCount = 0;
+    }
 
+    @Override
+    public List<OWLFrameSectionRow<OWLAnnotationSubject, OWLAnnotationAssertionAxiom, OWLAnnotation>> getRows() {
+        return rows;
     }
 
     @Override
@@ -108,12 +117,13 @@ public class OBOAnnotationFrameSection extends AbstractOWLFrameSection<OWLAnnota
 
     @Override
     public OWLObjectEditor<OWLAnnotation> getObjectEditor() {
-        if (!getOWLEditorKit().getModelManager().getActiveOntology().getAnnotationPropertiesInSignature().contains(property)) {
-            OWLModelManager man = getOWLEditorKit().getModelManager();
-            OWLAxiom ax = man.getOWLDataFactory().getOWLDeclarationAxiom(property);
-            man.applyChange(new AddAxiom(getOWLEditorKit().getModelManager().getActiveOntology(), ax));
+        // declares the properties of the view together, rdfs:comment is built in and needs no declaration
+        AnnotationPropertyDeclarations declarations = AnnotationPropertyDeclarations.get(getOWLModelManager());
+        declarations.ensureOBOVocabularyDeclared();
+        if (!property.isBuiltIn()) {
+            declarations.ensureDeclared(property.getIRI());
         }
-        return new OBOAnnotationEditor(getOWLEditorKit(), property);
+        return OBOAnnotationEditorPool.get(getOWLEditorKit()).acquire(property);
     }
 
     private static class OWLAnnotationSectionRowComparator implements Comparator<OWLFrameSectionRow<OWLAnnotationSubject, OWLAnnotationAssertionAxiom, OWLAnnotation>> {
@@ -140,9 +150,90 @@ public class OBOAnnotationFrameSection extends AbstractOWLFrameSection<OWLAnnota
     }
 
     public void visit(OWLAnnotationAssertionAxiom axiom) {
+        // annotation assertion changes are dispatched by the OBOAnnotationFrame once the index has been updated
+    }
+
+    /**
+     * Inserts the row for an added axiom, or updates the summary row of its ontology, without refilling the
+     * rest of the section. The frame is told exactly which row changed.
+     */
+    void handleAnnotationAssertionAdded(OWLOntology ontology, OWLAnnotationAssertionAxiom axiom) {
+        updateAnnotationCount(ontology, axiom);
+        if (!isAffectedBy(ontology, axiom)) {
+            return;
+        }
+        if (compact) {
+            updateSummaryRow(ontology);
+        }
+        else {
+            OBOAnnotationsFrameSectionRow row = new OBOAnnotationsFrameSectionRow(getOWLEditorKit(), this, ontology, getRootObject(), axiom, allowXrefs);
+            int index = Collections.binarySearch(rows, row, comparator);
+            if (index < 0) {
+                index = -index - 1;
+            }
+            rows.add(index, row);
+            frame.fireRowInserted(this, index);
+        }
+    }
+
+    /**
+     * Removes the row of a removed axiom, or updates the summary row of its ontology, without refilling the
+     * rest of the section. The frame is told exactly which row changed.
+     */
+    void handleAnnotationAssertionRemoved(OWLOntology ontology, OWLAnnotationAssertionAxiom axiom) {
+        updateAnnotationCount(ontology, axiom);
+        if (!isAffectedBy(ontology, axiom)) {
+            return;
+        }
+        if (compact) {
+            updateSummaryRow(ontology);
+        }
+        else {
+            for (int index = 0; index < rows.size(); index++) {
+                OWLFrameSectionRow<OWLAnnotationSubject, OWLAnnotationAssertionAxiom, OWLAnnotation> row = rows.get(index);
+                if (ontology.equals(row.getOntology()) && axiom.equals(row.getAxiom())) {
+                    rows.remove(index);
+                    frame.fireRowRemoved(this, index);
+                    return;
+                }
+            }
+        }
+    }
+
+    private void updateAnnotationCount(OWLOntology ontology, OWLAnnotationAssertionAxiom axiom) {
+        final OWLAnnotationSubject root = getRootObject();
+        if (root != null && axiom.getSubject().equals(root) && getOntologies().contains(ontology)) {
+            // recounted from the frame's buckets rather than adjusted, so that it cannot drift
+            annotationCount = getAnnotationCount();
+        }
+    }
+
+    private boolean isAffectedBy(OWLOntology ontology, OWLAnnotationAssertionAxiom axiom) {
         final OWLAnnotationSubject root = getRootObject();
-        if (axiom.getSubject().equals(root)){
-            reset();
+        return root != null && axiom.getSubject().equals(root) && getOntologies().contains(ontology) && !isHidden();
+    }
+
+    private void updateSummaryRow(OWLOntology ontology) {
+        int index = 0;
+        while (index < rows.size() && !ontology.equals(rows.get(index).getOntology())) {
+            index++;
+        }
+        Collection<OWLAnnotationAssertionAxiom> axioms = frame.getAnnotationAssertionAxioms(ontology, getRootObject(), property.getIRI());
+        if (axioms.isEmpty()) {
+            if (index < rows.size()) {
+                rows.remove(index);
+                frame.fireRowRemoved(this, index);
+            }
+            return;
+        }
+        OBOAnnotationsFrameSectionSummaryRow row = frame.getSummaryRow(this, ontology, getRootObject(), axioms);
+        if (index < rows.size()) {
+            rows.set(index, row);
+            frame.fireRowChanged(this, index);
+        }
+        else {
+            rows.add(row);
+            frame.fireRowInserted(this, index);
         }
     }
 
@@ -175,8 +266,7 @@ public class OBOAnnotationFrameSection extends AbstractOWLFrameSection<OWLAnnota
 	public boolean canAdd() {
 		boolean defaultCanAdd = super.canAdd();
 		if (defaultCanAdd && maxCardinality > 0) {
-			 int count = getAnnotationCount();
-			 return count < maxCardinality;
+			 return annotationCount < maxCardinality;
 		}
 		return defaultCanAdd;
 	}
@@ -189,12 +279,7 @@ public class OBOAnnotationFrameSection extends AbstractOWLFrameSection<OWLAnnota
     	final OWLAnnotationSubject root = getRootObject();
     	int count = 0;
     	for(OWLOntology ont : getOntologies()) {
-    		Set<OWLAnnotationAssertionAxiom> axioms = ont.getAnnotationAssertionAxioms(root);
-    		for (OWLAnnotationAssertionAxiom axiom : axioms) {
-				if (this.property.equals(axiom.getProperty())) {
-					count += 1;
-				}
-			}
+    		count += frame.getAnnotationAssertionAxioms(ont, root, property.getIRI()).size();
     	}
     	return count;
     }
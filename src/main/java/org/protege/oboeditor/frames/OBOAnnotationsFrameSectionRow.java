@@ -5,6 +5,7 @@ import org.protege.editor.owl.ui.editor.OWLAnnotationEditor;
 import org.protege.editor.owl.ui.editor.OWLObjectEditor;
 import org.protege.editor.owl.ui.frame.AbstractOWLFrameSectionRow;
 import org.protege.editor.owl.ui.frame.OWLFrameSection;
+import org.protege.oboeditor.renderer.AnnotationRenderModel;
 import org.semanticweb.owlapi.model.*;
 
 import java.util.Arrays;
@@ -19,6 +20,7 @@ public class OBOAnnotationsFrameSectionRow extends AbstractOWLFrameSectionRow<OW
 
     private final OWLAnnotationProperty property;
     private final boolean allowXrefs;
+    private final AnnotationRenderModel renderModel;
     
     public OBOAnnotationsFrameSectionRow(OWLEditorKit owlEditorKit,
     									 OWLFrameSection<OWLAnnotationSubject, OWLAnnotationAssertionAxiom, OWLAnnotation> section,
@@ -28,6 +30,7 @@ public class OBOAnnotationsFrameSectionRow extends AbstractOWLFrameSectionRow<OW
         super(owlEditorKit, section, ontology, rootObject, axiom);
         this.property = axiom.getProperty();
         this.allowXrefs = allowXrefs;
+        this.renderModel = AnnotationRenderModel.create(axiom.getAnnotation());
     }
 
 
@@ -37,7 +40,7 @@ public class OBOAnnotationsFrameSectionRow extends AbstractOWLFrameSectionRow<OW
 
 
     protected OWLObjectEditor<OWLAnnotation> getObjectEditor() {
-        OBOAnnotationEditor editor = new OBOAnnotationEditor(getOWLEditorKit(), property);
+        OBOAnnotationEditor editor = OBOAnnotationEditorPool.get(getOWLEditorKit()).acquire(property);
         editor.setEditedObject(getAxiom().getAnnotation());
         return editor;
     }
@@ -60,4 +63,11 @@ public class OBOAnnotationsFrameSectionRow extends AbstractOWLFrameSectionRow<OW
     public boolean isAllowXrefs() {
     	return allowXrefs;
     }
+
+    /**
+     * Gets the value shown for this row, computed when the row was created.
+     */
+    public AnnotationRenderModel getRenderModel() {
+        return renderModel;
+    }
 }
\ No newline at end of file
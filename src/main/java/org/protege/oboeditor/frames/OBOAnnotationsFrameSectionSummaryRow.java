@@ -8,6 +8,8 @@ import org.protege.editor.owl.OWLEditorKit;
 import org.protege.editor.owl.ui.editor.OWLObjectEditor;
 import org.protege.editor.owl.ui.frame.AbstractOWLFrameSectionRow;
 import org.protege.editor.owl.ui.frame.OWLFrameSection;
+import org.protege.oboeditor.renderer.AnnotationRenderModel;
+import org.protege.oboeditor.util.XrefPool;
 import org.semanticweb.owlapi.model.OWLAnnotation;
 import org.semanticweb.owlapi.model.OWLAnnotationAssertionAxiom;
 import org.semanticweb.owlapi.model.OWLAnnotationSubject;
@@ -17,6 +19,8 @@ import org.semanticweb.owlapi.model.OWLOntology;
 public class OBOAnnotationsFrameSectionSummaryRow extends AbstractOWLFrameSectionRow<OWLAnnotationSubject, OWLAnnotationAssertionAxiom, OWLAnnotation> {
 
     private final List<OWLAnnotationAssertionAxiom> axioms;
+
+    private final AnnotationRenderModel renderModel;
     
     public OBOAnnotationsFrameSectionSummaryRow(OWLEditorKit owlEditorKit,
     									 OWLFrameSection<OWLAnnotationSubject, OWLAnnotationAssertionAxiom, OWLAnnotation> section,
@@ -26,6 +30,15 @@ public class OBOAnnotationsFrameSectionSummaryRow extends AbstractOWLFrameSectio
                                          boolean allowXrefs) {
         super(owlEditorKit, section, ontology, rootObject, null);
         this.axioms = new ArrayList<OWLAnnotationAssertionAxiom>(axioms);
+        this.renderModel = AnnotationRenderModel.create(this.axioms, XrefPool.get(owlEditorKit.getModelManager()));
+    }
+
+
+    /**
+     * Gets the sorted values and cross references shown for this row, computed when the row was created.
+     */
+    public AnnotationRenderModel getRenderModel() {
+        return renderModel;
     }
 
 
@@ -1,15 +1,15 @@
 package org.protege.oboeditor.frames;
 
 import java.util.Comparator;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import org.protege.editor.owl.OWLEditorKit;
 import org.protege.editor.owl.ui.editor.OWLObjectEditor;
 import org.protege.editor.owl.ui.frame.AbstractOWLFrameSection;
 import org.protege.editor.owl.ui.frame.OWLFrame;
 import org.protege.editor.owl.ui.frame.OWLFrameSectionRow;
+import org.protege.oboeditor.util.CurieConverter;
 import org.protege.oboeditor.util.OBOVocabulary;
+import org.semanticweb.owlapi.model.IRI;
 import org.semanticweb.owlapi.model.OWLAnnotation;
 import org.semanticweb.owlapi.model.OWLAnnotationAssertionAxiom;
 import org.semanticweb.owlapi.model.OWLAnnotationSubject;
@@ -19,8 +19,15 @@ import org.semanticweb.owlapi.vocab.OWL2Datatype;
 public class OBOTermIDFrameSection
 		extends AbstractOWLFrameSection<OWLAnnotationSubject, OWLAnnotationAssertionAxiom, OWLAnnotation> {
 
-	private static final Pattern OBO_STYLE_ID_PATTERN = Pattern
-			.compile("^http://purl.obolibrary.org/obo/(\\w+)_(\\d+)$");
+	private static final Comparator<OWLFrameSectionRow<OWLAnnotationSubject, OWLAnnotationAssertionAxiom, OWLAnnotation>> ROW_COMPARATOR =
+			new Comparator<OWLFrameSectionRow<OWLAnnotationSubject, OWLAnnotationAssertionAxiom, OWLAnnotation>>() {
+
+		@Override
+		public int compare(OWLFrameSectionRow<OWLAnnotationSubject, OWLAnnotationAssertionAxiom, OWLAnnotation> o1,
+				OWLFrameSectionRow<OWLAnnotationSubject, OWLAnnotationAssertionAxiom, OWLAnnotation> o2) {
+			return getOBOID(o1.getFrameSection().getRootObject()).compareTo(getOBOID(o2.getFrameSection().getRootObject()));
+		}
+	};
 
 	protected OBOTermIDFrameSection(OWLEditorKit editorKit, String label,
 			OWLFrame<? extends OWLAnnotationSubject> frame) {
@@ -29,16 +36,7 @@ public class OBOTermIDFrameSection
 
 	@Override
 	public Comparator<OWLFrameSectionRow<OWLAnnotationSubject, OWLAnnotationAssertionAxiom, OWLAnnotation>> getRowComparator() {
-		return new Comparator<OWLFrameSectionRow<OWLAnnotationSubject, OWLAnnotationAssertionAxiom, OWLAnnotation>>() {
-
-			@Override
-			public int compare(OWLFrameSectionRow<OWLAnnotationSubject, OWLAnnotationAssertionAxiom, OWLAnnotation> o1,
-					OWLFrameSectionRow<OWLAnnotationSubject, OWLAnnotationAssertionAxiom, OWLAnnotation> o2) {
-				return o1.getFrameSection().getRootObject().toString()
-						.compareTo(o2.getFrameSection().getRootObject().toString());
-			}
-
-		};
+		return ROW_COMPARATOR;
 	}
 
 	@Override
@@ -63,12 +61,14 @@ public class OBOTermIDFrameSection
 	}
 
 	public String getOBOID() {
-		Matcher oboIdMatcher = OBO_STYLE_ID_PATTERN.matcher(this.getRootObject().toString());
-		if (oboIdMatcher.find()) {
-			return oboIdMatcher.group(1) + ":" + oboIdMatcher.group(2);
-		} else {
-			return this.getRootObject().toString();
+		return getOBOID(this.getRootObject());
+	}
+
+	private static String getOBOID(OWLAnnotationSubject subject) {
+		if (subject instanceof IRI) {
+			return CurieConverter.getInstance().getCurieOrIRI((IRI) subject);
 		}
+		return subject.toString();
 	}
 
 	@Override
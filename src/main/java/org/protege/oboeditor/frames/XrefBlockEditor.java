@@ -0,0 +1,92 @@
+package org.protege.oboeditor.frames;
+
+import java.awt.BorderLayout;
+import java.awt.Dimension;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.swing.JComponent;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTextArea;
+
+import org.protege.editor.owl.OWLEditorKit;
+import org.protege.oboeditor.util.OBOVocabulary;
+import org.protege.oboeditor.util.XrefPool;
+import org.semanticweb.owlapi.model.OWLAnnotation;
+import org.semanticweb.owlapi.model.OWLAnnotationProperty;
+import org.semanticweb.owlapi.model.OWLDataFactory;
+
+/**
+ * An editor for a block of database cross references, e.g. a list of CURIEs pasted from a paper or a
+ * spreadsheet. Identifiers may be separated by white space, commas, semicolons or pipes.
+ */
+public class XrefBlockEditor {
+
+    private static final String SEPARATORS = "[\\s,;|]+";
+
+    private final OWLEditorKit editorKit;
+
+    private final JPanel mainPanel;
+
+    private final JTextArea textArea;
+
+
+    public XrefBlockEditor(OWLEditorKit editorKit) {
+        this.editorKit = editorKit;
+        mainPanel = new JPanel(new BorderLayout(6, 6));
+        textArea = new JTextArea();
+        textArea.setLineWrap(true);
+        textArea.setWrapStyleWord(true);
+        JScrollPane scroller = new JScrollPane(textArea);
+        scroller.setPreferredSize(new Dimension(400, 200));
+        mainPanel.add(new JLabel("Database cross references, e.g. PMID:12345 GOC:xyz"), BorderLayout.NORTH);
+        mainPanel.add(scroller, BorderLayout.CENTER);
+    }
+
+
+    public JComponent getEditorComponent() {
+        return mainPanel;
+    }
+
+
+    public void clear() {
+        textArea.setText("");
+    }
+
+
+    /**
+     * Gets the xref annotations for the identifiers in the block, in the order they were entered, without
+     * duplicates.
+     */
+    public List<OWLAnnotation> getXrefs() {
+        OWLDataFactory df = editorKit.getOWLModelManager().getOWLDataFactory();
+        OWLAnnotationProperty xref = df.getOWLAnnotationProperty(OBOVocabulary.XREF.getIRI());
+        XrefPool pool = XrefPool.get(editorKit.getOWLModelManager());
+        List<OWLAnnotation> annotations = new ArrayList<OWLAnnotation>();
+        for (String id : parseIds(textArea.getText())) {
+            annotations.add(pool.intern(df.getOWLAnnotation(xref, df.getOWLLiteral(id))));
+        }
+        return annotations;
+    }
+
+
+    /**
+     * Splits a block of text into identifiers, dropping empty and repeated ones.
+     */
+    public static Collection<String> parseIds(String text) {
+        Set<String> ids = new LinkedHashSet<String>();
+        if (text != null) {
+            for (String id : text.trim().split(SEPARATORS)) {
+                if (!id.isEmpty()) {
+                    ids.add(id);
+                }
+            }
+        }
+        return ids;
+    }
+}
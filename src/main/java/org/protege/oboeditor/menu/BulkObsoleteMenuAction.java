@@ -0,0 +1,312 @@
+package org.protege.oboeditor.menu;
+
+import java.awt.BorderLayout;
+import java.awt.Dialog;
+import java.awt.FlowLayout;
+import java.awt.Window;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+
+import javax.swing.BorderFactory;
+import javax.swing.JButton;
+import javax.swing.JDialog;
+import javax.swing.JLabel;
+import javax.swing.JOptionPane;
+import javax.swing.JPanel;
+import javax.swing.JProgressBar;
+import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
+import javax.swing.WindowConstants;
+
+import org.protege.editor.core.ui.util.UIUtil;
+import org.protege.editor.owl.model.OWLModelManager;
+import org.protege.editor.owl.ui.action.ProtegeOWLAction;
+import org.protege.oboeditor.util.AnnotationPropertyDeclarations;
+import org.protege.oboeditor.util.CurieIndex;
+import org.protege.oboeditor.util.OBOVocabulary;
+import org.protege.oboeditor.util.ObsoletionEngine;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLAnnotationAssertionAxiom;
+import org.semanticweb.owlapi.model.OWLAnnotationValue;
+import org.semanticweb.owlapi.model.OWLEntity;
+import org.semanticweb.owlapi.model.OWLOntologyChange;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Obsoletes the terms listed in a tab separated file. Each line holds an IRI or CURIE, optionally followed
+ * by the replacement term (several replacements separated by <code>|</code> become terms to consider) and
+ * the obsolescence reason. Blank lines, lines starting with <code>#</code> and a header line starting with
+ * <code>id</code> are skipped.
+ * <p>
+ * The file is not streamed: all of its lines are read and resolved before any change is computed, and the
+ * whole change list is held in memory until it is applied. The changes are computed in a background task
+ * behind a modal progress dialog, so that the ontology cannot be edited while they are computed, and are
+ * then applied as one change list, which is undone as a single step. Cancelling the dialog leaves the
+ * ontology untouched.
+ */
+public class BulkObsoleteMenuAction extends ProtegeOWLAction {
+
+	private static final long serialVersionUID = 4406383916683925183L;
+
+	private static final Logger logger = LoggerFactory.getLogger(BulkObsoleteMenuAction.class);
+
+	@Override
+	public void initialise() throws Exception {}
+
+	@Override
+	public void dispose() throws Exception {}
+
+	@Override
+	public void actionPerformed(ActionEvent e) {
+		final File file = UIUtil.openFile(getOWLWorkspace(), "Obsolete terms from file", "Tab separated files",
+				Collections.singleton("tsv"));
+		if (file == null) {
+			return;
+		}
+		final JProgressBar progressBar = new JProgressBar(0, 100);
+		final JLabel statusLabel = new JLabel("Reading " + file.getName() + "...");
+		final ObsoletionWorker worker = new ObsoletionWorker(file, getOWLModelManager(), statusLabel);
+
+		Window owner = SwingUtilities.getWindowAncestor(getOWLWorkspace());
+		final JDialog dlg = new JDialog(owner, "Bulk obsoletion", Dialog.ModalityType.APPLICATION_MODAL);
+		JButton cancelButton = new JButton("Cancel");
+		cancelButton.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent event) {
+				worker.cancel(true);
+				dlg.dispose();
+			}
+		});
+		dlg.setDefaultCloseOperation(WindowConstants.DO_NOTHING_ON_CLOSE);
+		dlg.addWindowListener(new WindowAdapter() {
+			@Override
+			public void windowClosing(WindowEvent event) {
+				worker.cancel(true);
+				dlg.dispose();
+			}
+		});
+		worker.addPropertyChangeListener(new PropertyChangeListener() {
+			public void propertyChange(PropertyChangeEvent event) {
+				if ("progress".equals(event.getPropertyName())) {
+					progressBar.setValue((Integer) event.getNewValue());
+				}
+				else if ("state".equals(event.getPropertyName()) && worker.isDone()) {
+					dlg.dispose();
+				}
+			}
+		});
+		JPanel panel = new JPanel(new BorderLayout(6, 6));
+		panel.setBorder(BorderFactory.createEmptyBorder(12, 12, 12, 12));
+		panel.add(statusLabel, BorderLayout.NORTH);
+		panel.add(progressBar, BorderLayout.CENTER);
+		JPanel buttons = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+		buttons.add(cancelButton);
+		panel.add(buttons, BorderLayout.SOUTH);
+		dlg.setContentPane(panel);
+		dlg.pack();
+		dlg.setLocationRelativeTo(owner);
+
+		worker.execute();
+		if (!worker.isDone()) {
+			// blocks until the worker has finished or the user has cancelled
+			dlg.setVisible(true);
+		}
+
+		Result result;
+		try {
+			result = worker.get();
+		}
+		catch (CancellationException ex) {
+			return;
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			return;
+		}
+		catch (ExecutionException ex) {
+			logger.error("Bulk obsoletion from {} failed", file, ex.getCause());
+			JOptionPane.showMessageDialog(getOWLWorkspace(), "Bulk obsoletion failed: " + ex.getCause(),
+					"Bulk obsoletion", JOptionPane.ERROR_MESSAGE);
+			return;
+		}
+		if (!result.changes.isEmpty()) {
+			List<OWLOntologyChange> changes = new ArrayList<OWLOntologyChange>();
+			changes.addAll(AnnotationPropertyDeclarations.get(getOWLModelManager()).getDeclarationChanges(
+					getUsedProperties(result.changes)));
+			changes.addAll(result.changes);
+			getOWLModelManager().applyChanges(changes);
+		}
+		JOptionPane.showMessageDialog(getOWLWorkspace(), result.obsoleted + " terms obsoleted, " + result.unresolved
+				+ " lines could not be resolved, " + result.unresolvedReplacements + " replacement terms could not be resolved.",
+				"Bulk obsoletion", JOptionPane.INFORMATION_MESSAGE);
+	}
+
+	/**
+	 * Gets the obsoletion properties that the changes use, so that only those are declared.
+	 */
+	private static Set<IRI> getUsedProperties(List<OWLOntologyChange> changes) {
+		Set<IRI> obsoletionProperties = new HashSet<IRI>(Arrays.asList(OBOVocabulary.REPLACED_BY.getIRI(),
+				OBOVocabulary.CONSIDER.getIRI(), OBOVocabulary.OBSOLESCENCE_REASON.getIRI()));
+		Set<IRI> used = new HashSet<IRI>();
+		for (OWLOntologyChange change : changes) {
+			if (change.isAddAxiom() && change.getAxiom() instanceof OWLAnnotationAssertionAxiom) {
+				IRI property = ((OWLAnnotationAssertionAxiom) change.getAxiom()).getProperty().getIRI();
+				if (obsoletionProperties.contains(property)) {
+					used.add(property);
+				}
+			}
+		}
+		return used;
+	}
+
+	/**
+	 * Reads the file and computes the changes for all of its obsoletions, without applying them.
+	 */
+	private static class ObsoletionWorker extends SwingWorker<Result, String> {
+
+		private final File file;
+
+		private final OWLModelManager modelManager;
+
+		private final JLabel statusLabel;
+
+		ObsoletionWorker(File file, OWLModelManager modelManager, JLabel statusLabel) {
+			this.file = file;
+			this.modelManager = modelManager;
+			this.statusLabel = statusLabel;
+		}
+
+		@Override
+		protected void process(List<String> chunks) {
+			statusLabel.setText(chunks.get(chunks.size() - 1));
+		}
+
+		/**
+		 * All entities are given to the engine before any changes are computed, so that an axiom shared by
+		 * several of them is not rewritten to still mention one that is obsoleted later on.
+		 */
+		@Override
+		protected Result doInBackground() throws IOException {
+			final CurieIndex curies = CurieIndex.build(modelManager.getActiveOntologies());
+			final Result result = new Result();
+			final List<Line> lines = new ArrayList<Line>();
+			BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8));
+			try {
+				String text;
+				while ((text = reader.readLine()) != null) {
+					if (isCancelled()) {
+						return result;
+					}
+					String[] columns = text.split("\t", -1);
+					String id = columns[0].trim();
+					if (id.isEmpty() || id.startsWith("#") || id.equalsIgnoreCase("id") || id.equalsIgnoreCase("iri")) {
+						continue;
+					}
+					Line line = parse(columns, curies, modelManager, result);
+					if (line == null) {
+						result.unresolved++;
+						continue;
+					}
+					lines.add(line);
+				}
+			}
+			finally {
+				reader.close();
+			}
+
+			publish("Computing the changes for " + lines.size() + " terms...");
+			final ObsoletionEngine engine = new ObsoletionEngine(modelManager, Collections.<OWLEntity>emptySet());
+			for (Line line : lines) {
+				engine.addEntities(line.entities);
+			}
+			for (int i = 0; i < lines.size(); i++) {
+				if (isCancelled()) {
+					return result;
+				}
+				Line line = lines.get(i);
+				// the engine only relabels and annotates the first of several punned entities
+				for (OWLEntity entity : line.entities) {
+					result.changes.addAll(engine.getChanges(entity, line.replacements, line.reason));
+				}
+				result.obsoleted++;
+				setProgress((i + 1) * 100 / lines.size());
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * Parses a line of the file.
+	 * @return The line, or <code>null</code> if its term cannot be resolved. Replacements that cannot be
+	 * resolved are counted in the result.
+	 */
+	private static Line parse(String[] columns, CurieIndex curies, OWLModelManager modelManager, Result result) {
+		IRI iri = curies.resolve(columns[0]);
+		if (iri == null) {
+			return null;
+		}
+		Set<OWLEntity> entities = modelManager.getOWLEntityFinder().getEntities(iri);
+		if (entities.isEmpty()) {
+			return null;
+		}
+		List<IRI> replacements = new ArrayList<IRI>(1);
+		if (columns.length > 1) {
+			for (String replacement : columns[1].split("\\|")) {
+				if (replacement.trim().isEmpty()) {
+					continue;
+				}
+				IRI replacementIRI = curies.resolve(replacement);
+				if (replacementIRI != null) {
+					replacements.add(replacementIRI);
+				}
+				else {
+					result.unresolvedReplacements++;
+				}
+			}
+		}
+		OWLAnnotationValue reason = null;
+		if (columns.length > 2 && !columns[2].trim().isEmpty()) {
+			// reasons are usually terms such as IAO:0000227 (terms merged), otherwise keep the text
+			IRI reasonIRI = columns[2].contains(" ") ? null : curies.resolve(columns[2]);
+			reason = reasonIRI != null ? reasonIRI : modelManager.getOWLDataFactory().getOWLLiteral(columns[2].trim());
+		}
+		return new Line(entities, replacements, reason);
+	}
+
+	private static class Line {
+		private final Set<OWLEntity> entities;
+		private final List<IRI> replacements;
+		private final OWLAnnotationValue reason;
+
+		Line(Set<OWLEntity> entities, List<IRI> replacements, OWLAnnotationValue reason) {
+			this.entities = entities;
+			this.replacements = replacements;
+			this.reason = reason;
+		}
+	}
+
+	private static class Result {
+		private final List<OWLOntologyChange> changes = new ArrayList<OWLOntologyChange>();
+		private int obsoleted;
+		private int unresolved;
+		private int unresolvedReplacements;
+	}
+}
@@ -0,0 +1,69 @@
+package org.protege.oboeditor.menu;
+
+import java.awt.BorderLayout;
+import java.awt.Dimension;
+import java.awt.event.ActionEvent;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import javax.swing.JLabel;
+import javax.swing.JOptionPane;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTextArea;
+
+import org.protege.editor.owl.ui.UIHelper;
+import org.protege.editor.owl.ui.action.ProtegeOWLAction;
+import org.protege.oboeditor.frames.XrefBlockEditor;
+import org.protege.oboeditor.util.CurieConverter;
+import org.semanticweb.owlapi.model.IRI;
+
+/**
+ * Obsoletes a list of entities, given by IRI or CURIE, in one go. The identifiers may be separated by
+ * white space, commas, semicolons or pipes, so that a column copied from a spreadsheet can be pasted.
+ */
+public class ObsoleteEntityListMenuAction extends ProtegeOWLAction {
+
+	private static final long serialVersionUID = -6218464914786245541L;
+
+	@Override
+	public void initialise() throws Exception {}
+
+	@Override
+	public void dispose() throws Exception {}
+
+	@Override
+	public void actionPerformed(ActionEvent e) {
+		JTextArea textArea = new JTextArea();
+		JScrollPane scroller = new JScrollPane(textArea);
+		scroller.setPreferredSize(new Dimension(400, 250));
+		JPanel panel = new JPanel(new BorderLayout(6, 6));
+		panel.add(new JLabel("IRIs or CURIEs of the entities to obsolete"), BorderLayout.NORTH);
+		panel.add(scroller, BorderLayout.CENTER);
+		int ret = new UIHelper(getOWLEditorKit()).showDialog("Obsolete entities", panel, null);
+		if (ret != JOptionPane.OK_OPTION) {
+			return;
+		}
+
+		List<IRI> iris = new ArrayList<IRI>();
+		List<String> malformed = new ArrayList<String>();
+		for (String id : XrefBlockEditor.parseIds(textArea.getText())) {
+			IRI iri = id.contains("://") ? IRI.create(id) : CurieConverter.getInstance().getIRI(id);
+			if (iri != null) {
+				iris.add(iri);
+			}
+			else {
+				malformed.add(id);
+			}
+		}
+		if (iris.isEmpty()) {
+			return;
+		}
+		Set<IRI> unknown = ObsoleteEntityMenuAction.obsoleteIRIs(getOWLEditorKit(), iris);
+		if (!unknown.isEmpty() || !malformed.isEmpty()) {
+			JOptionPane.showMessageDialog(getOWLWorkspace(), (unknown.size() + malformed.size())
+					+ " identifiers were not found and have been ignored.", "Obsolete entities", JOptionPane.WARNING_MESSAGE);
+		}
+	}
+}
@@ -1,23 +1,18 @@
 package org.protege.oboeditor.menu;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
 
+import org.protege.editor.owl.OWLEditorKit;
 import org.protege.editor.owl.ui.action.SelectedOWLEntityAction;
-import org.semanticweb.owlapi.model.OWLAnnotation;
-import org.semanticweb.owlapi.model.OWLAnnotationAssertionAxiom;
-import org.semanticweb.owlapi.model.OWLAnnotationProperty;
-import org.semanticweb.owlapi.model.OWLClass;
-import org.semanticweb.owlapi.model.OWLClassExpression;
-import org.semanticweb.owlapi.model.OWLDataFactory;
-import org.semanticweb.owlapi.model.OWLDisjointClassesAxiom;
+import org.protege.oboeditor.panel.ObsoletionPreviewPanel;
+import org.protege.oboeditor.util.ObsoletionEngine;
+import org.semanticweb.owlapi.model.IRI;
 import org.semanticweb.owlapi.model.OWLEntity;
-import org.semanticweb.owlapi.model.OWLEquivalentClassesAxiom;
-import org.semanticweb.owlapi.model.OWLHasKeyAxiom;
-import org.semanticweb.owlapi.model.OWLLiteral;
-import org.semanticweb.owlapi.model.OWLOntology;
-import org.semanticweb.owlapi.model.OWLOntologyManager;
-import org.semanticweb.owlapi.model.OWLSubClassOfAxiom;
-import org.semanticweb.owlapi.vocab.OWLRDFVocabulary;
+import org.semanticweb.owlapi.model.OWLOntologyChange;
 
 public class ObsoleteEntityMenuAction extends SelectedOWLEntityAction {
 
@@ -25,70 +20,49 @@ public class ObsoleteEntityMenuAction extends SelectedOWLEntityAction {
 
 	@Override
 	protected void actionPerformed(OWLEntity entity) {
-		final OWLOntologyManager manager = this.getOWLModelManager().getOWLOntologyManager();
-		final OWLDataFactory factory = this.getOWLDataFactory();
-		final OWLOntology ontology = this.getOWLModelManager().getActiveOntology();
-		this.relabel(entity);
-		manager.addAxiom(ontology, factory.getDeprecatedOWLAnnotationAssertionAxiom(entity.getIRI()));
-		if (entity.isOWLClass()) {
-			final OWLClass ontClass = entity.asOWLClass();
-			for (OWLEquivalentClassesAxiom axiom : ontology.getEquivalentClassesAxioms(ontClass)) {
-				manager.removeAxiom(ontology, axiom);
-				final Set<OWLClassExpression> otherClasses = axiom.getClassExpressionsMinus(ontClass);
-				final Set<OWLAnnotation> annotations = axiom.getAnnotations();
-				if (otherClasses.size() > 1) {
-					final OWLEquivalentClassesAxiom newAxiom = factory.getOWLEquivalentClassesAxiom(otherClasses, annotations);
-					manager.addAxiom(ontology, newAxiom);
-				}
-			}
-			for (OWLSubClassOfAxiom axiom : ontology.getSubClassAxiomsForSubClass(ontClass)) {
-				manager.removeAxiom(ontology, axiom);
-			}
-			for (OWLSubClassOfAxiom axiom : ontology.getSubClassAxiomsForSuperClass(ontClass)) {
-				manager.removeAxiom(ontology, axiom);
-			}
-			for (OWLHasKeyAxiom axiom : ontology.getHasKeyAxioms(ontClass)) {
-				manager.removeAxiom(ontology, axiom);
-			}
-			for (OWLDisjointClassesAxiom axiom : ontology.getDisjointClassesAxioms(ontClass)) {
-				manager.removeAxiom(ontology, axiom);
-				final Set<OWLClassExpression> otherClasses = axiom.getClassExpressionsMinus(ontClass);
-				final Set<OWLAnnotation> annotations = axiom.getAnnotations();
-				if (otherClasses.size() > 1) {
-					final OWLDisjointClassesAxiom newAxiom = factory.getOWLDisjointClassesAxiom(otherClasses, annotations);
-					manager.addAxiom(ontology, newAxiom);
-				}
-			}
+		obsolete(this.getOWLEditorKit(), Collections.singleton(entity));
+	}
+
+	/**
+	 * Makes the given entities obsolete, after showing what will happen in the obsoletion preview. The
+	 * changes for all entities are computed by an {@link ObsoletionEngine} and applied as a single change
+	 * list, so that they are broadcast, and undone, together.
+	 * @return <code>true</code> if the changes were applied, <code>false</code> if the user cancelled.
+	 */
+	public static boolean obsolete(OWLEditorKit editorKit, Collection<? extends OWLEntity> entities) {
+		if (entities.isEmpty()) {
+			return false;
 		}
-		if (entity.isOWLNamedIndividual()) {
-			//TODO
+		// hub terms can have thousands of referencing axioms, so show what will happen before changing anything
+		final List<OWLOntologyChange> changes = ObsoletionPreviewPanel.showDialog(editorKit, entities);
+		if (changes == null) {
+			return false;
 		}
-		if (entity.isOWLObjectProperty()) {
-			//TODO
+		if (!changes.isEmpty()) {
+			editorKit.getModelManager().applyChanges(changes);
 		}
+		return true;
 	}
 
-	@Override
-	protected void disposeAction() throws Exception {}
-
-	private void relabel(OWLEntity entity) {
-		final OWLOntologyManager manager = this.getOWLModelManager().getOWLOntologyManager();
-		final OWLDataFactory factory = this.getOWLDataFactory();
-		final OWLAnnotationProperty rdfsLabel = factory.getOWLAnnotationProperty(OWLRDFVocabulary.RDFS_LABEL.getIRI());
-		final OWLOntology ontology = this.getOWLModelManager().getActiveOntology();
-		for (OWLAnnotationAssertionAxiom annotation : ontology.getAnnotationAssertionAxioms(entity.getIRI())) {
-			if (annotation.getProperty().equals(rdfsLabel)) {
-				if (annotation.getValue() instanceof OWLLiteral) {
-					final Set<OWLAnnotation> annotationAnnotations = annotation.getAnnotations();
-					final OWLLiteral literal = (OWLLiteral)(annotation.getValue());
-					final String newLabel = "obsolete " + literal.getLiteral();
-					final OWLLiteral newLiteral = factory.getOWLLiteral(newLabel);
-					final OWLAnnotationAssertionAxiom newAxiom = factory.getOWLAnnotationAssertionAxiom(rdfsLabel, entity.getIRI(), newLiteral, annotationAnnotations);
-					manager.removeAxiom(ontology, annotation);
-					manager.addAxiom(ontology, newAxiom);
-				}
+	/**
+	 * Makes the entities with the given IRIs obsolete, see {@link #obsolete(OWLEditorKit, Collection)}.
+	 * @return The IRIs that are not used for any entity, and were ignored.
+	 */
+	public static Set<IRI> obsoleteIRIs(OWLEditorKit editorKit, Collection<IRI> iris) {
+		final Set<OWLEntity> entities = new LinkedHashSet<OWLEntity>();
+		final Set<IRI> unknown = new LinkedHashSet<IRI>();
+		for (IRI iri : iris) {
+			Set<OWLEntity> found = editorKit.getModelManager().getOWLEntityFinder().getEntities(iri);
+			if (found.isEmpty()) {
+				unknown.add(iri);
 			}
+			entities.addAll(found);
 		}
+		obsolete(editorKit, entities);
+		return unknown;
 	}
 
-}
\ No newline at end of file
+	@Override
+	protected void disposeAction() throws Exception {}
+
+}
@@ -0,0 +1,294 @@
+package org.protege.oboeditor.panel;
+
+import org.protege.editor.owl.OWLEditorKit;
+import org.protege.editor.owl.ui.renderer.OWLCellRenderer;
+import org.protege.oboeditor.util.ObsoletionEngine;
+import org.semanticweb.owlapi.model.AxiomType;
+import org.semanticweb.owlapi.model.OWLAxiom;
+import org.semanticweb.owlapi.model.OWLEntity;
+import org.semanticweb.owlapi.model.OWLOntologyChange;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Shows what obsoleting a set of entities would do before anything is changed: the full change set,
+ * the number of removed and added axioms per axiom type, and the rewritten n-ary axioms. The changes
+ * are computed by an {@link ObsoletionEngine} in a background task and shown as they arrive.
+ */
+public class ObsoletionPreviewPanel extends JComponent {
+
+    private static final long serialVersionUID = -3026113853627294453L;
+
+    private static final Logger logger = LoggerFactory.getLogger(ObsoletionPreviewPanel.class);
+
+    private final OWLEditorKit editorKit;
+
+    private final List<OWLOntologyChange> changes = new ArrayList<OWLOntologyChange>();
+
+    private final DefaultListModel<OWLOntologyChange> changeModel = new DefaultListModel<OWLOntologyChange>();
+
+    private final DefaultListModel<OWLAxiom> rewrittenModel = new DefaultListModel<OWLAxiom>();
+
+    private final AxiomTypeCountModel countModel = new AxiomTypeCountModel();
+
+    private final JLabel statusLabel = new JLabel();
+
+    private final List<ActionListener> completionListeners = new ArrayList<ActionListener>();
+
+    private SwingWorker<Void, List<OWLOntologyChange>> worker;
+
+    private boolean complete = false;
+
+
+    public ObsoletionPreviewPanel(OWLEditorKit eKit) {
+        this.editorKit = eKit;
+        setLayout(new BorderLayout(6, 6));
+        setPreferredSize(new Dimension(700, 500));
+
+        JList<OWLOntologyChange> changeList = new JList<OWLOntologyChange>(changeModel);
+        changeList.setCellRenderer(new DefaultListCellRenderer() {
+
+            private static final long serialVersionUID = 2113656735312339384L;
+
+            @Override
+            public Component getListCellRendererComponent(JList<?> list, Object value, int index, boolean isSelected, boolean cellHasFocus) {
+                OWLOntologyChange change = (OWLOntologyChange) value;
+                String prefix = change.isAddAxiom() ? "Add: " : "Remove: ";
+                String rendering = prefix + editorKit.getModelManager().getRendering(change.getAxiom());
+                return super.getListCellRendererComponent(list, rendering, index, isSelected, cellHasFocus);
+            }
+        });
+
+        JList<OWLAxiom> rewrittenList = new JList<OWLAxiom>(rewrittenModel);
+        rewrittenList.setCellRenderer(new OWLCellRenderer(eKit));
+
+        JTable countTable = new JTable(countModel);
+        countTable.setFillsViewportHeight(true);
+
+        JTabbedPane tabs = new JTabbedPane();
+        tabs.addTab("Axiom types", new JScrollPane(countTable));
+        tabs.addTab("Rewritten axioms", new JScrollPane(rewrittenList));
+        tabs.addTab("All changes", new JScrollPane(changeList));
+
+        add(statusLabel, BorderLayout.NORTH);
+        add(tabs, BorderLayout.CENTER);
+        updateStatus();
+    }
+
+
+    /**
+     * Starts computing the changes for the given entities.  Must be called on the event dispatch thread.
+     */
+    public void start(Collection<? extends OWLEntity> entities) {
+        final ObsoletionEngine engine = new ObsoletionEngine(editorKit.getModelManager(), entities);
+        worker = new SwingWorker<Void, List<OWLOntologyChange>>() {
+
+            @Override
+            protected Void doInBackground() throws Exception {
+                for (OWLEntity entity : engine.getEntities()) {
+                    if (isCancelled()) {
+                        break;
+                    }
+                    publish(engine.getChanges(entity));
+                }
+                return null;
+            }
+
+            @Override
+            protected void process(List<List<OWLOntologyChange>> chunks) {
+                for (List<OWLOntologyChange> chunk : chunks) {
+                    addChanges(chunk);
+                }
+                updateStatus();
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    get();
+                    complete = true;
+                }
+                catch (CancellationException e) {
+                    // the preview was closed
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                catch (ExecutionException e) {
+                    logger.error("Could not compute the obsoletion changes", e.getCause());
+                    statusLabel.setForeground(Color.RED);
+                    statusLabel.setText("The changes could not be computed: " + e.getCause());
+                    return;
+                }
+                updateStatus();
+                for (ActionListener listener : completionListeners) {
+                    listener.actionPerformed(new ActionEvent(ObsoletionPreviewPanel.this, ActionEvent.ACTION_PERFORMED, "complete"));
+                }
+            }
+        };
+        worker.execute();
+    }
+
+
+    public void cancel() {
+        if (worker != null) {
+            worker.cancel(true);
+        }
+    }
+
+
+    public boolean isComplete() {
+        return complete;
+    }
+
+
+    /**
+     * Gets the changes computed so far; the full change set once {@link #isComplete()} returns <code>true</code>.
+     */
+    public List<OWLOntologyChange> getChanges() {
+        return new ArrayList<OWLOntologyChange>(changes);
+    }
+
+
+    public void addCompletionListener(ActionListener listener) {
+        completionListeners.add(listener);
+    }
+
+
+    private void addChanges(List<OWLOntologyChange> chunk) {
+        for (OWLOntologyChange change : chunk) {
+            changes.add(change);
+            changeModel.addElement(change);
+            OWLAxiom axiom = change.getAxiom();
+            countModel.count(axiom.getAxiomType(), change.isAddAxiom());
+            if (change.isAddAxiom() && axiom.isLogicalAxiom()) {
+                rewrittenModel.addElement(axiom);
+            }
+        }
+    }
+
+
+    private void updateStatus() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(changes.size()).append(" changes, ").append(rewrittenModel.getSize()).append(" rewritten axioms");
+        if (!complete) {
+            sb.append(" (computing...)");
+        }
+        statusLabel.setText(sb.toString());
+    }
+
+
+    /**
+     * Shows a preview of obsoleting the given entities in a modal dialog.
+     * @return The changes to apply, or <code>null</code> if the user cancelled.
+     */
+    public static List<OWLOntologyChange> showDialog(OWLEditorKit eKit, Collection<? extends OWLEntity> entities) {
+        final ObsoletionPreviewPanel panel = new ObsoletionPreviewPanel(eKit);
+        Window owner = SwingUtilities.getWindowAncestor(eKit.getWorkspace());
+        final JDialog dlg = new JDialog(owner, "Obsoletion preview", Dialog.ModalityType.APPLICATION_MODAL);
+        final JButton applyButton = new JButton("Apply");
+        final JButton cancelButton = new JButton("Cancel");
+        final boolean[] applied = new boolean[1];
+        applyButton.setEnabled(false);
+        applyButton.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                applied[0] = true;
+                dlg.dispose();
+            }
+        });
+        cancelButton.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                dlg.dispose();
+            }
+        });
+        panel.addCompletionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                applyButton.setEnabled(panel.isComplete());
+            }
+        });
+        dlg.addWindowListener(new WindowAdapter() {
+            public void windowClosed(WindowEvent e) {
+                panel.cancel();
+            }
+        });
+        JPanel buttons = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        buttons.add(cancelButton);
+        buttons.add(applyButton);
+        dlg.getContentPane().add(panel, BorderLayout.CENTER);
+        dlg.getContentPane().add(buttons, BorderLayout.SOUTH);
+        dlg.setDefaultCloseOperation(JDialog.DISPOSE_ON_CLOSE);
+        dlg.pack();
+        dlg.setLocationRelativeTo(owner);
+        panel.start(entities);
+        dlg.setVisible(true);
+        return applied[0] ? panel.getChanges() : null;
+    }
+
+
+    private static class AxiomTypeCountModel extends AbstractTableModel {
+
+        private static final long serialVersionUID = 6468420906580848022L;
+
+        private final Map<AxiomType<?>, int[]> counts = new LinkedHashMap<AxiomType<?>, int[]>();
+
+        private final List<AxiomType<?>> types = new ArrayList<AxiomType<?>>();
+
+        void count(AxiomType<?> type, boolean added) {
+            int[] count = counts.get(type);
+            if (count == null) {
+                count = new int[2];
+                counts.put(type, count);
+                types.add(type);
+                fireTableRowsInserted(types.size() - 1, types.size() - 1);
+            }
+            count[added ? 1 : 0]++;
+            int row = types.indexOf(type);
+            fireTableRowsUpdated(row, row);
+        }
+
+        public int getRowCount() {
+            return types.size();
+        }
+
+        public int getColumnCount() {
+            return 3;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            switch (column) {
+                case 0: return "Axiom type";
+                case 1: return "Removed";
+                default: return "Added";
+            }
+        }
+
+        @Override
+        public Class<?> getColumnClass(int column) {
+            return column == 0 ? String.class : Integer.class;
+        }
+
+        public Object getValueAt(int row, int column) {
+            AxiomType<?> type = types.get(row);
+            if (column == 0) {
+                return type.getName();
+            }
+            return counts.get(type)[column - 1];
+        }
+    }
+}
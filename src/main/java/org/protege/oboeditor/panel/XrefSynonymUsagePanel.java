@@ -0,0 +1,152 @@
+package org.protege.oboeditor.panel;
+
+import org.protege.editor.owl.OWLEditorKit;
+import org.protege.editor.owl.ui.UIHelper;
+import org.protege.editor.owl.ui.renderer.OWLCellRenderer;
+import org.protege.oboeditor.util.XrefSynonymIndex;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLAnnotationSubject;
+import org.semanticweb.owlapi.model.OWLEntity;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Shows the other terms that carry the same xrefs or synonyms as a given annotation. The terms are looked
+ * up in the {@link XrefSynonymIndex}, in a background task in case the index has not been built yet.
+ */
+public class XrefSynonymUsagePanel extends JComponent {
+
+    private static final long serialVersionUID = 6181716434823815264L;
+
+    private static final Logger logger = LoggerFactory.getLogger(XrefSynonymUsagePanel.class);
+
+    private final OWLEditorKit editorKit;
+
+    private final DefaultListModel<OWLEntity> entityModel = new DefaultListModel<OWLEntity>();
+
+    private final JList<OWLEntity> entityList;
+
+    private final JLabel statusLabel = new JLabel();
+
+    private SwingWorker<Set<OWLAnnotationSubject>, Void> worker;
+
+
+    public XrefSynonymUsagePanel(OWLEditorKit eKit) {
+        this.editorKit = eKit;
+        setLayout(new BorderLayout(6, 6));
+        setPreferredSize(new Dimension(500, 300));
+
+        entityList = new JList<OWLEntity>(entityModel);
+        entityList.setCellRenderer(new OWLCellRenderer(eKit));
+        entityList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+
+        add(statusLabel, BorderLayout.NORTH);
+        add(new JScrollPane(entityList), BorderLayout.CENTER);
+    }
+
+
+    /**
+     * Starts looking up the terms that carry any of the given values, other than the given subject.
+     * Must be called on the event dispatch thread.
+     */
+    public void start(final Collection<String> values, final OWLAnnotationSubject subject) {
+        final XrefSynonymIndex index = XrefSynonymIndex.get(editorKit.getModelManager());
+        statusLabel.setText(index.isBuilt() ? "Searching..." : "Indexing xrefs and synonyms...");
+        worker = new SwingWorker<Set<OWLAnnotationSubject>, Void>() {
+
+            @Override
+            protected Set<OWLAnnotationSubject> doInBackground() throws Exception {
+                Set<OWLAnnotationSubject> subjects = new LinkedHashSet<OWLAnnotationSubject>();
+                for (String value : values) {
+                    if (isCancelled()) {
+                        break;
+                    }
+                    // cancelling interrupts the lookup, which stops building the index
+                    subjects.addAll(index.getSubjects(value));
+                }
+                subjects.remove(subject);
+                return subjects;
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    // the entities are looked up here, as the ontologies are only read on this thread
+                    Set<OWLEntity> entities = getEntities(get());
+                    for (OWLEntity entity : entities) {
+                        entityModel.addElement(entity);
+                    }
+                    statusLabel.setText(entities.size() + " other terms with " + values);
+                }
+                catch (CancellationException e) {
+                    // the dialog was closed
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                catch (ExecutionException e) {
+                    if (e.getCause() instanceof XrefSynonymIndex.IndexUnavailableException) {
+                        logger.warn("The lookup of the terms with {} was cut short", values, e.getCause());
+                        statusLabel.setText("The lookup was cut short, as the ontologies kept changing. Please try again.");
+                        return;
+                    }
+                    logger.error("Could not look up the terms with {}", values, e.getCause());
+                    statusLabel.setText("The terms could not be looked up: " + e.getCause());
+                }
+            }
+        };
+        worker.execute();
+    }
+
+
+    public void cancel() {
+        if (worker != null) {
+            worker.cancel(true);
+        }
+    }
+
+
+    public OWLEntity getSelectedEntity() {
+        return entityList.getSelectedValue();
+    }
+
+
+    private Set<OWLEntity> getEntities(Collection<OWLAnnotationSubject> subjects) {
+        List<OWLEntity> entities = new ArrayList<OWLEntity>();
+        for (OWLAnnotationSubject subject : subjects) {
+            // anonymous subjects are not shown
+            if (subject instanceof IRI) {
+                entities.addAll(editorKit.getModelManager().getOWLEntityFinder().getEntities((IRI) subject));
+            }
+        }
+        return new LinkedHashSet<OWLEntity>(entities);
+    }
+
+
+    /**
+     * Shows the other terms that carry any of the given values in a modal dialog, and selects the chosen
+     * term in the workspace.
+     */
+    public static void showDialog(OWLEditorKit eKit, Collection<String> values, OWLAnnotationSubject subject) {
+        XrefSynonymUsagePanel panel = new XrefSynonymUsagePanel(eKit);
+        panel.start(values, subject);
+        int ret = new UIHelper(eKit).showDialog("Other terms with the same xrefs or synonyms", panel, null);
+        panel.cancel();
+        if (ret == JOptionPane.OK_OPTION) {
+            OWLEntity entity = panel.getSelectedEntity();
+            if (entity != null) {
+                eKit.getOWLWorkspace().getOWLSelectionModel().setSelectedEntity(entity);
+            }
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package org.protege.oboeditor.renderer;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.protege.oboeditor.util.OBOVocabulary;
+import org.protege.oboeditor.util.XrefPool;
+import org.semanticweb.owlapi.model.OWLAnnotation;
+import org.semanticweb.owlapi.model.OWLAnnotationAssertionAxiom;
+
+/**
+ * An immutable description of what an annotation cell shows: the annotation values in display order, each
+ * with its database cross references. Frame rows build their model once, when they are created, so that
+ * painting a row does not have to extract, sort or filter anything.
+ */
+public final class AnnotationRenderModel {
+
+    public static final AnnotationRenderModel EMPTY = new AnnotationRenderModel(Collections.<Entry>emptyList());
+
+    private static final Comparator<Entry> ENTRY_COMPARATOR = new Comparator<Entry>() {
+
+        @Override
+        public int compare(Entry e1, Entry e2) {
+            return e1.annotation.compareTo(e2.annotation);
+        }
+    };
+
+    private final List<Entry> entries;
+
+
+    private AnnotationRenderModel(List<Entry> entries) {
+        this.entries = entries;
+    }
+
+
+    /**
+     * Creates a model that shows a single annotation value without cross references.
+     */
+    public static AnnotationRenderModel create(OWLAnnotation annotation) {
+        return new AnnotationRenderModel(Collections.singletonList(new Entry(annotation, Collections.<OWLAnnotation>emptyList())));
+    }
+
+
+    /**
+     * Creates a model that shows the values of the given annotation assertions, sorted by annotation, each
+     * followed by the database cross references found in the axiom annotations.
+     * @param pool The pool that the cross references are shared through.
+     */
+    public static AnnotationRenderModel create(Collection<OWLAnnotationAssertionAxiom> axioms, XrefPool pool) {
+        if (axioms.isEmpty()) {
+            return EMPTY;
+        }
+        List<Entry> entries = new ArrayList<Entry>(axioms.size());
+        for (OWLAnnotationAssertionAxiom ax : axioms) {
+            entries.add(new Entry(ax.getAnnotation(), filterXrefs(ax.getAnnotations(), pool)));
+        }
+        Collections.sort(entries, ENTRY_COMPARATOR);
+        return new AnnotationRenderModel(Collections.unmodifiableList(entries));
+    }
+
+
+    /**
+     * Creates a model for a mixed collection of annotation assertions and annotations, in display order.
+     */
+    static AnnotationRenderModel createFromValues(Collection<?> values, XrefPool pool) {
+        if (values.isEmpty()) {
+            return EMPTY;
+        }
+        List<Entry> entries = new ArrayList<Entry>(values.size());
+        for (Object o : values) {
+            if (o instanceof OWLAnnotationAssertionAxiom) {
+                OWLAnnotationAssertionAxiom ax = (OWLAnnotationAssertionAxiom) o;
+                entries.add(new Entry(ax.getAnnotation(), filterXrefs(ax.getAnnotations(), pool)));
+            }
+            else if (o instanceof OWLAnnotation) {
+                entries.add(new Entry((OWLAnnotation) o, Collections.<OWLAnnotation>emptyList()));
+            }
+        }
+        Collections.sort(entries, ENTRY_COMPARATOR);
+        return new AnnotationRenderModel(Collections.unmodifiableList(entries));
+    }
+
+
+    private static List<OWLAnnotation> filterXrefs(Collection<OWLAnnotation> annotations, XrefPool pool) {
+        List<OWLAnnotation> xrefs = null;
+        for (OWLAnnotation annotation : annotations) {
+            if (OBOVocabulary.XREF.getIRI().equals(annotation.getProperty().getIRI())) {
+                if (xrefs == null) {
+                    xrefs = new ArrayList<OWLAnnotation>(2);
+                }
+                xrefs.add(annotation);
+            }
+        }
+        if (xrefs == null) {
+            return Collections.emptyList();
+        }
+        // the same xrefs are attached to many axioms, so rows share one list
+        return pool.intern(xrefs);
+    }
+
+
+    public List<Entry> getEntries() {
+        return entries;
+    }
+
+
+    public boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+
+    /**
+     * An annotation value together with its (possibly empty) list of cross references.
+     */
+    public static final class Entry {
+
+        private final OWLAnnotation annotation;
+
+        private final List<OWLAnnotation> xrefs;
+
+        private Entry(OWLAnnotation annotation, List<OWLAnnotation> xrefs) {
+            this.annotation = annotation;
+            this.xrefs = xrefs;
+        }
+
+        public OWLAnnotation getAnnotation() {
+            return annotation;
+        }
+
+        public List<OWLAnnotation> getXrefs() {
+            return xrefs;
+        }
+    }
+}
@@ -3,9 +3,13 @@ package org.protege.oboeditor.renderer;
 import org.semanticweb.owlapi.util.EscapeUtils;
 import org.protege.editor.owl.OWLEditorKit;
 import org.protege.editor.owl.model.OWLModelManager;
+import org.protege.editor.owl.model.event.EventType;
+import org.protege.editor.owl.model.event.OWLModelManagerChangeEvent;
+import org.protege.editor.owl.model.event.OWLModelManagerListener;
 import org.protege.editor.owl.ui.renderer.layout.*;
 import org.protege.oboeditor.frames.AbstractDatabaseCrossReferenceList;
 import org.protege.oboeditor.util.OBOVocabulary;
+import org.protege.oboeditor.util.XrefPool;
 import org.semanticweb.owlapi.model.*;
 
 import javax.swing.*;
@@ -33,9 +37,46 @@ public class OBOAnnotationCellRenderer extends PageCellRenderer {
 
     private OWLOntology ontology;
 
+    private static final int MAX_CACHED_PARAGRAPHS = 256;
+
+    // finished paragraphs keyed by value and available width, so that repaints and scrolling don't redo the text layout
+    private final Map<ParagraphKey, Paragraph> paragraphCache = new LinkedHashMap<ParagraphKey, Paragraph>(16, 0.75f, true) {
+
+        private static final long serialVersionUID = -5411370409474846374L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<ParagraphKey, Paragraph> eldest) {
+            return size() > MAX_CACHED_PARAGRAPHS;
+        }
+    };
+
+    // entity renderings inside annotation values can change with any ontology change
+    private final OWLOntologyChangeListener ontologyChangeListener = new OWLOntologyChangeListener() {
+        public void ontologiesChanged(List<? extends OWLOntologyChange> changes) throws OWLException {
+            paragraphCache.clear();
+        }
+    };
+
+    private final OWLModelManagerListener modelManagerListener = new OWLModelManagerListener() {
+        public void handleChange(OWLModelManagerChangeEvent event) {
+            if (event.isType(EventType.ENTITY_RENDERER_CHANGED) || event.isType(EventType.ENTITY_RENDERING_CHANGED)
+                    || event.isType(EventType.ACTIVE_ONTOLOGY_CHANGED)) {
+                paragraphCache.clear();
+            }
+        }
+    };
+
     public OBOAnnotationCellRenderer(OWLEditorKit editorKit) {
         super();
         this.editorKit = editorKit;
+        editorKit.getOWLModelManager().addOntologyChangeListener(ontologyChangeListener);
+        editorKit.getOWLModelManager().addListener(modelManagerListener);
+    }
+
+    public void dispose() {
+        editorKit.getOWLModelManager().removeOntologyChangeListener(ontologyChangeListener);
+        editorKit.getOWLModelManager().removeListener(modelManagerListener);
+        paragraphCache.clear();
     }
 
     /**
@@ -65,8 +106,15 @@ public class OBOAnnotationCellRenderer extends PageCellRenderer {
 
     @Override
     protected Object getValueKey(Object value) {
-    	List<AnnotationXrefContainer> list = extractOWLAnnotationFromCellValues(value);
-        return list.hashCode();
+        if (value instanceof AbstractDatabaseCrossReferenceList.AnnotationsListItem) {
+            return ((AbstractDatabaseCrossReferenceList.AnnotationsListItem) value).getAnnotation();
+        }
+        if (value instanceof Collection) {
+            // compare by identity, hashing large collections of axioms costs more than a layout
+            return new IdentityKey(value);
+        }
+        // render models are compared by identity, rows create a new one whenever their axioms change
+        return value;
     }
 
 
@@ -83,7 +131,8 @@ public class OBOAnnotationCellRenderer extends PageCellRenderer {
     protected void fillPage(Page page, JTable table, Object value, boolean isSelected, boolean hasFocus, int row, int column) {
         Color foreground = isSelected ? table.getSelectionForeground() : table.getForeground();
         Color background = isSelected ? table.getSelectionBackground() : table.getBackground();
-        renderCellValue(page, value, foreground, background, isSelected);
+        int width = getMaxAvailablePageWidth(page, table, value, isSelected, hasFocus, row, column);
+        renderCellValue(page, value, width, foreground, background, isSelected);
     }
 
     @Override
@@ -104,7 +153,8 @@ public class OBOAnnotationCellRenderer extends PageCellRenderer {
     protected void fillPage(final Page page, JList list, Object value, int index, boolean isSelected, boolean cellHasFocus) {
         Color foreground = isSelected ? list.getSelectionForeground() : list.getForeground();
         Color background = isSelected ? list.getSelectionBackground() : list.getBackground();
-        renderCellValue(page, value, foreground, background, isSelected);
+        int width = getMaxAvailablePageWidth(list, value, index, isSelected, cellHasFocus);
+        renderCellValue(page, value, width, foreground, background, isSelected);
     }
 
     @Override
@@ -126,71 +176,75 @@ public class OBOAnnotationCellRenderer extends PageCellRenderer {
     ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
     ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
 
-    private static class AnnotationXrefContainer {
-    	private OWLAnnotation annotation = null;
-    	private List<OWLAnnotation> xrefs = null;
-    	
-		@Override
-		public int hashCode() {
-			final int prime = 31;
-			int result = 1;
-			result = prime * result
-					+ ((annotation == null) ? 0 : annotation.hashCode());
-			result = prime * result + ((xrefs == null) ? 0 : xrefs.hashCode());
-			return result;
-		}
+    /**
+     * Compares a value by identity rather than by equality, which avoids hashing large collections of axioms.
+     */
+    private static class IdentityKey {
+        private final Object value;
 
-		@Override
-		public boolean equals(Object obj) {
-			if (this == obj)
-				return true;
-			if (obj == null)
-				return false;
-			if (getClass() != obj.getClass())
-				return false;
-			AnnotationXrefContainer other = (AnnotationXrefContainer) obj;
-			if (annotation == null) {
-				if (other.annotation != null)
-					return false;
-			} else if (!annotation.equals(other.annotation))
-				return false;
-			if (xrefs == null) {
-				if (other.xrefs != null)
-					return false;
-			} else if (!xrefs.equals(other.xrefs))
-				return false;
-			return true;
-		}
-		
-		static AnnotationXrefContainer create(OWLAnnotation annotation) {
-			AnnotationXrefContainer c = new AnnotationXrefContainer();
-			c.annotation = annotation;
-			return c;
-		}
-		
-		static AnnotationXrefContainer create(OWLAnnotation annotation, Collection<OWLAnnotation> xrefs) {
-			AnnotationXrefContainer c = create(annotation);
-			if (xrefs != null) {
-				c.xrefs = new ArrayList<OWLAnnotation>(xrefs);
-			}
-			return c;
-		}
+        IdentityKey(Object value) {
+            this.value = value;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(value);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof IdentityKey && ((IdentityKey) obj).value == value;
+        }
+    }
+
+    private static class ParagraphKey {
+        private final Object valueKey;
+        private final int width;
+
+        ParagraphKey(Object valueKey, int width) {
+            this.valueKey = valueKey;
+            this.width = width;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * valueKey.hashCode() + width;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof ParagraphKey)) {
+                return false;
+            }
+            ParagraphKey other = (ParagraphKey) obj;
+            return width == other.width && valueKey.equals(other.valueKey);
+        }
     }
-    
 
     /**
      * Renderes a list or table cell value if the value contains an OWLAnnotation.
      * @param page The page that the value will be rendered into.
      * @param value The value that may or may not contain an OWLAnnotation.  The annotation will be extracted from
      * this value.
+     * @param width The width available to the page, the cached paragraph for the value is only reused at the same width.
      * @param foreground The default foreground color.
      * @param background The default background color.
      * @param isSelected Whether or not the cell containing the value is selected.
      */
-    private void renderCellValue(Page page, Object value, Color foreground, Color background, boolean isSelected) {
-        List<AnnotationXrefContainer> annotations = extractOWLAnnotationFromCellValues(value);
-        if (annotations != null && !annotations.isEmpty()) {
-            renderAnnotationValues(page, annotations, foreground, background, isSelected);
+    private void renderCellValue(Page page, Object value, int width, Color foreground, Color background, boolean isSelected) {
+        ParagraphKey key = value == null ? null : new ParagraphKey(getValueKey(value), width);
+        Paragraph paragraph = key == null ? null : paragraphCache.get(key);
+        if (paragraph != null) {
+            page.add(paragraph);
+        }
+        else {
+            AnnotationRenderModel annotations = extractOWLAnnotationFromCellValues(value);
+            if (!annotations.isEmpty()) {
+                List<Paragraph> paragraphs = renderAnnotationValues(page, annotations, foreground, background, isSelected);
+                if (key != null && paragraphs.size() == 1) {
+                    paragraphCache.put(key, paragraphs.get(0));
+                }
+            }
         }
         page.setMargin(2);
         page.setMarginBottom(20);
@@ -198,79 +252,25 @@ public class OBOAnnotationCellRenderer extends PageCellRenderer {
     }
     
     /**
-     * Extracts an OWLAnnotation from the actual value held in a cell in a list or table.
+     * Extracts the render model from the actual value held in a cell in a list or table.  Frame rows hand
+     * out a precomputed model, other values are converted on the fly.
      * @param value The list or table cell value.
-     * @return The OWLAnnotation contained within the value.
+     * @return The (possibly empty) render model for the value.
      */
-    protected List<AnnotationXrefContainer> extractOWLAnnotationFromCellValues(Object value) {
-    	List<AnnotationXrefContainer> annotations = Collections.emptyList();
+    protected AnnotationRenderModel extractOWLAnnotationFromCellValues(Object value) {
+        if (value instanceof AnnotationRenderModel) {
+            return (AnnotationRenderModel) value;
+        }
         if (value instanceof AbstractDatabaseCrossReferenceList.AnnotationsListItem) {
-            OWLAnnotation annotation = ((AbstractDatabaseCrossReferenceList.AnnotationsListItem) value).getAnnotation();
-            annotations = Collections.singletonList(AnnotationXrefContainer.create(annotation));
+            return AnnotationRenderModel.create(((AbstractDatabaseCrossReferenceList.AnnotationsListItem) value).getAnnotation());
         }
-        else if (value instanceof OWLAnnotation) {
-        	OWLAnnotation annotation = (OWLAnnotation) value;
-        	annotations = Collections.singletonList(AnnotationXrefContainer.create(annotation));
+        if (value instanceof OWLAnnotation) {
+            return AnnotationRenderModel.create((OWLAnnotation) value);
         }
-        else if (value instanceof Collection) {
-			Collection c = (Collection) value;
-        	if (!c.isEmpty()) {
-        		annotations = new ArrayList<AnnotationXrefContainer>(c.size());
-				for(Object o : c) {
-					if (o instanceof OWLAnnotationAssertionAxiom) {
-						OWLAnnotationAssertionAxiom ax = (OWLAnnotationAssertionAxiom) o;
-						annotations.add(AnnotationXrefContainer.create(ax.getAnnotation(), filterXrefs(ax.getAnnotations())));
-					}
-					else if (o instanceof OWLAnnotation) {
-						annotations.add(AnnotationXrefContainer.create((OWLAnnotation) o));
-					}
-	        	}
-				if (!c.isEmpty()) {
-					Collections.sort(annotations, new Comparator<AnnotationXrefContainer>() {
-
-						@Override
-						public int compare(AnnotationXrefContainer c1, AnnotationXrefContainer c2) {
-							if (c1 == null && c2 == null) {
-								return 0;
-							}
-							if (c1 == null) {
-								return 1;
-							}
-							if (c2 == null) {
-								return -1;
-							}
-							return c1.annotation.compareTo(c2.annotation);
-						}
-					});
-				}
-			}
+        if (value instanceof Collection) {
+            return AnnotationRenderModel.createFromValues((Collection<?>) value, XrefPool.get(editorKit.getOWLModelManager()));
         }
-        return annotations;
-    }
-
-    
-    private List<OWLAnnotation> filterXrefs(Collection<OWLAnnotation> annotations) {
-    	List<OWLAnnotation> xrefs = null;
-    	if (annotations != null && !annotations.isEmpty()) {
-			for (OWLAnnotation annotation : annotations) {
-				OWLAnnotationProperty property = annotation.getProperty();
-				if (OBOVocabulary.XREF.getIRI().equals(property.getIRI())) {
-					if (xrefs == null) {
-						xrefs = Collections.singletonList(annotation);
-					}
-					else if (xrefs.size() == 1) {
-						OWLAnnotation prev = xrefs.get(0);
-						xrefs = new ArrayList<OWLAnnotation>();
-						xrefs.add(prev);
-						xrefs.add(annotation);
-					}
-					else {
-						xrefs.add(annotation);
-					}
-				}
-			}
-		}
-    	return xrefs;
+        return AnnotationRenderModel.EMPTY;
     }
 
     ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
@@ -288,12 +288,12 @@ public class OBOAnnotationCellRenderer extends PageCellRenderer {
      * @return A list of paragraphs that represent the rendering of the annotation value.  These paragraphs will have
      * been added to the Page specified by the page argument.
      */
-    private List<Paragraph> renderAnnotationValues(final Page page, final List<AnnotationXrefContainer> annotations, final Color defaultForeground, final Color defaultBackground, final boolean isSelected) {
+    private List<Paragraph> renderAnnotationValues(final Page page, final AnnotationRenderModel annotations, final Color defaultForeground, final Color defaultBackground, final boolean isSelected) {
     	StringBuilder sb = new StringBuilder();
     	List<LinkSpan> spans = new ArrayList<LinkSpan>();
-    	for (Iterator<AnnotationXrefContainer> iterator = annotations.iterator(); iterator.hasNext();) {
-    		AnnotationXrefContainer container = iterator.next();
-			appendAnnotation(sb, spans, container, iterator.hasNext());
+    	List<AnnotationRenderModel.Entry> entries = annotations.getEntries();
+    	for (int i = 0; i < entries.size(); i++) {
+			appendAnnotation(sb, spans, entries.get(i), i < entries.size() - 1);
 		}
     	Paragraph paragraph = new Paragraph(sb.toString(), spans);
     	paragraph.setMargin(4);
@@ -322,8 +322,8 @@ public class OBOAnnotationCellRenderer extends PageCellRenderer {
         return editorKit.getOWLWorkspace().getOWLIconProvider().getIcon(entity);
     }
 
-    private void appendAnnotation(final StringBuilder sb, final List<LinkSpan> allLinks, final AnnotationXrefContainer container, boolean hasNext) {
-    	OWLAnnotationValue val = container.annotation.getValue();
+    private void appendAnnotation(final StringBuilder sb, final List<LinkSpan> allLinks, final AnnotationRenderModel.Entry entry, boolean hasNext) {
+    	OWLAnnotationValue val = entry.getAnnotation().getValue();
     	val.accept(new OWLAnnotationValueVisitor() {
 			
 			@Override
@@ -341,9 +341,9 @@ public class OBOAnnotationCellRenderer extends PageCellRenderer {
 				appendIRI(sb, allLinks, iri);
 			}
 		});
-    	if (container.xrefs != null && !container.xrefs.isEmpty()) {
+    	if (!entry.getXrefs().isEmpty()) {
     		sb.append(" [");
-    		for (Iterator<OWLAnnotation> xrefIt = container.xrefs.iterator(); xrefIt.hasNext();) {
+    		for (Iterator<OWLAnnotation> xrefIt = entry.getXrefs().iterator(); xrefIt.hasNext();) {
     			OWLAnnotation xref = xrefIt.next();
     			xref.getValue().accept(new OWLAnnotationValueVisitor() {
 
@@ -5,6 +5,7 @@ import org.protege.editor.owl.ui.frame.AbstractOWLFrameSectionRow;
 import org.protege.editor.owl.ui.frame.OWLFrameSection;
 import org.protege.editor.owl.ui.frame.OWLFrameSectionRow;
 import org.protege.editor.owl.ui.renderer.OWLCellRenderer;
+import org.protege.oboeditor.frames.OBOAnnotationsFrameSectionRow;
 import org.protege.oboeditor.frames.OBOAnnotationsFrameSectionSummaryRow;
 import org.semanticweb.owlapi.model.OWLAnnotationAssertionAxiom;
 import org.semanticweb.owlapi.model.OWLAxiom;
@@ -135,8 +136,11 @@ public class OBOFrameListRenderer  implements ListCellRenderer {
             if (axiom instanceof OWLAnnotationAssertionAxiom && annotationRendererEnabled) {
                 OWLAnnotationAssertionAxiom annotationAssertionAxiom = (OWLAnnotationAssertionAxiom) axiom;
                 annotationRenderer.setReferenceOntology(row.getOntology());
+                Object annotationValue = value instanceof OBOAnnotationsFrameSectionRow
+                        ? ((OBOAnnotationsFrameSectionRow) value).getRenderModel()
+                        : annotationAssertionAxiom.getAnnotation();
                 return annotationRenderer.getListCellRendererComponent(list,
-                                                                       annotationAssertionAxiom.getAnnotation(),
+                                                                       annotationValue,
                                                                        index,
                                                                        isSelected,
                                                                        cellHasFocus);
@@ -145,7 +149,7 @@ public class OBOFrameListRenderer  implements ListCellRenderer {
 				OBOAnnotationsFrameSectionSummaryRow summary = (OBOAnnotationsFrameSectionSummaryRow) value;
 				annotationRenderer.setReferenceOntology(row.getOntology());
 				return annotationRenderer.getListCellRendererComponent(list,
-                        summary.getManipulatableObjects(),
+                        summary.getRenderModel(),
                         index,
                         isSelected,
                         cellHasFocus);
@@ -173,6 +177,11 @@ public class OBOFrameListRenderer  implements ListCellRenderer {
     }
 
 
+    public void dispose() {
+        annotationRenderer.dispose();
+    }
+
+
     protected OWLObject getIconObject(JList list, Object value, int index, boolean isSelected, boolean cellHasFocus) {
         if (value instanceof AbstractOWLFrameSectionRow) {
             AbstractOWLFrameSectionRow row = (AbstractOWLFrameSectionRow) value;
@@ -0,0 +1,325 @@
+package org.protege.oboeditor.util;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.swing.Timer;
+
+import org.protege.editor.core.Disposable;
+import org.protege.editor.owl.model.OWLModelManager;
+import org.semanticweb.owlapi.model.AxiomType;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLAnnotationAssertionAxiom;
+import org.semanticweb.owlapi.model.OWLAnnotationProperty;
+import org.semanticweb.owlapi.model.OWLAnnotationSubject;
+import org.semanticweb.owlapi.model.OWLException;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLOntologyChange;
+import org.semanticweb.owlapi.model.OWLOntologyChangeListener;
+
+/**
+ * An index of annotation assertion axioms keyed by subject and annotation property IRI, shared by all
+ * OBO annotation frames of a model manager.
+ * <p>
+ * A subject is indexed the first time it is looked up in an ontology, with a single pass over its
+ * annotation assertions that buckets them by property IRI. From then on the index is kept up to date
+ * from ontology changes, so repeated lookups for the same subject never scan the ontology again. The
+ * number of indexed subjects is bounded; the least recently used subjects are dropped first.
+ */
+public class AnnotationAssertionIndex implements Disposable {
+
+    private static final int MAX_INDEXED_SUBJECTS = 512;
+
+    private final OWLModelManager modelManager;
+
+    private final Map<OWLAnnotationSubject, Map<OWLOntology, Map<IRI, Set<OWLAnnotationAssertionAxiom>>>> subjects =
+            new LinkedHashMap<OWLAnnotationSubject, Map<OWLOntology, Map<IRI, Set<OWLAnnotationAssertionAxiom>>>>(16, 0.75f, true) {
+
+                private static final long serialVersionUID = 2687440167264391137L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<OWLAnnotationSubject, Map<OWLOntology, Map<IRI, Set<OWLAnnotationAssertionAxiom>>>> eldest) {
+                    return size() > MAX_INDEXED_SUBJECTS;
+                }
+            };
+
+    // the delay between two prefetch slices, which leaves the event dispatch thread free in between
+    private static final int PREFETCH_DELAY = 40;
+
+    // the number of subjects indexed per prefetch slice
+    private static final int PREFETCH_SLICE = 4;
+
+    private final Timer prefetchTimer;
+
+    private Iterator<? extends OWLAnnotationSubject> prefetchSubjects;
+
+    private Collection<OWLOntology> prefetchOntologies;
+
+    // incremented for every batch of changes that touches annotation assertions
+    private volatile long changeCount;
+
+    private final List<AnnotationAssertionIndexListener> listeners = new CopyOnWriteArrayList<AnnotationAssertionIndexListener>();
+
+    private final OWLOntologyChangeListener ontologyChangeListener = new OWLOntologyChangeListener() {
+        public void ontologiesChanged(List<? extends OWLOntologyChange> changes) throws OWLException {
+            handleOntologyChanges(changes);
+        }
+    };
+
+
+    private AnnotationAssertionIndex(OWLModelManager modelManager) {
+        this.modelManager = modelManager;
+        modelManager.addOntologyChangeListener(ontologyChangeListener);
+        prefetchTimer = new Timer(PREFETCH_DELAY, new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                prefetchSlice();
+            }
+        });
+        prefetchTimer.setInitialDelay(PREFETCH_DELAY);
+    }
+
+
+    /**
+     * Gets the index shared by everything that works with the given model manager, creating it on first use.
+     * The index is disposed together with the model manager.
+     */
+    public static synchronized AnnotationAssertionIndex get(OWLModelManager modelManager) {
+        AnnotationAssertionIndex index = modelManager.get(AnnotationAssertionIndex.class);
+        if (index == null) {
+            index = new AnnotationAssertionIndex(modelManager);
+            modelManager.put(AnnotationAssertionIndex.class, index);
+        }
+        return index;
+    }
+
+
+    /**
+     * Gets the annotation assertion axioms in an ontology that have the given subject and property.
+     * @return An unmodifiable, possibly empty, set of axioms. The set is not affected by later changes.
+     */
+    public synchronized Set<OWLAnnotationAssertionAxiom> getAnnotationAssertionAxioms(OWLOntology ontology, OWLAnnotationSubject subject, OWLAnnotationProperty property) {
+        Set<OWLAnnotationAssertionAxiom> axioms = getIndexedProperties(ontology, subject).get(property.getIRI());
+        if (axioms == null) {
+            return Collections.emptySet();
+        }
+        return axioms;
+    }
+
+
+    /**
+     * Gets all annotation assertion axioms in an ontology that have the given subject, bucketed by property IRI.
+     * @return An unmodifiable map from property IRI to the (non-empty) set of axioms with that property.
+     * Neither the map nor its sets are affected by later changes.
+     */
+    public synchronized Map<IRI, Set<OWLAnnotationAssertionAxiom>> getAnnotationAssertionAxiomsByProperty(OWLOntology ontology, OWLAnnotationSubject subject) {
+        return getIndexedProperties(ontology, subject);
+    }
+
+
+    /**
+     * Determines whether the annotation assertions of a subject in an ontology are indexed, i.e. whether
+     * looking them up is cheap.
+     */
+    public synchronized boolean isIndexed(OWLOntology ontology, OWLAnnotationSubject subject) {
+        Map<OWLOntology, Map<IRI, Set<OWLAnnotationAssertionAxiom>>> ontologies = subjects.get(subject);
+        return ontologies != null && ontologies.containsKey(ontology);
+    }
+
+
+    /**
+     * Adds the annotation assertions of a subject in an ontology, read and bucketed elsewhere, e.g. by
+     * {@link #bucketByProperty} on a worker thread. They are only added if no annotation assertions have
+     * changed since the given change count was read, as they may be stale otherwise.
+     */
+    public synchronized void index(OWLOntology ontology, OWLAnnotationSubject subject,
+                                   Map<IRI, Set<OWLAnnotationAssertionAxiom>> properties, long changeCount) {
+        if (changeCount != this.changeCount) {
+            return;
+        }
+        Map<OWLOntology, Map<IRI, Set<OWLAnnotationAssertionAxiom>>> ontologies = subjects.get(subject);
+        if (ontologies == null) {
+            ontologies = new HashMap<OWLOntology, Map<IRI, Set<OWLAnnotationAssertionAxiom>>>();
+            subjects.put(subject, ontologies);
+        }
+        if (!ontologies.containsKey(ontology)) {
+            ontologies.put(ontology, properties);
+        }
+    }
+
+
+    /**
+     * Indexes the given subjects while the UI is idle, e.g. the neighbours of the selected class, which are
+     * likely to be looked up next. The ontologies can only be read safely on the event dispatch thread, so
+     * the subjects are indexed there, a few at a time with pauses in between. The iterator is advanced
+     * lazily, one slice at a time, so it may compute its subjects as it goes. A new request replaces any
+     * prefetch that has not finished yet. Must be called on the event dispatch thread.
+     */
+    public void prefetch(Iterator<? extends OWLAnnotationSubject> subjectsToIndex, Collection<OWLOntology> ontologies) {
+        prefetchSubjects = subjectsToIndex;
+        prefetchOntologies = ontologies;
+        prefetchTimer.restart();
+    }
+
+
+    private void prefetchSlice() {
+        if (prefetchSubjects == null) {
+            prefetchTimer.stop();
+            return;
+        }
+        for (int i = 0; i < PREFETCH_SLICE; i++) {
+            if (!prefetchSubjects.hasNext()) {
+                cancelPrefetch();
+                return;
+            }
+            OWLAnnotationSubject subject = prefetchSubjects.next();
+            for (OWLOntology ontology : prefetchOntologies) {
+                if (modelManager.getActiveOntologies().contains(ontology)) {
+                    getAnnotationAssertionAxiomsByProperty(ontology, subject);
+                }
+            }
+        }
+    }
+
+
+    private void cancelPrefetch() {
+        prefetchTimer.stop();
+        prefetchSubjects = null;
+        prefetchOntologies = null;
+    }
+
+
+    /**
+     * Gets a counter that changes whenever annotation assertions are added or removed, so that callers can
+     * tell whether results looked up earlier may have become stale.
+     */
+    public long getChangeCount() {
+        return changeCount;
+    }
+
+
+    public void addListener(AnnotationAssertionIndexListener listener) {
+        listeners.add(listener);
+    }
+
+
+    public void removeListener(AnnotationAssertionIndexListener listener) {
+        listeners.remove(listener);
+    }
+
+
+    public void dispose() {
+        cancelPrefetch();
+        modelManager.removeOntologyChangeListener(ontologyChangeListener);
+        listeners.clear();
+        synchronized (this) {
+            subjects.clear();
+        }
+    }
+
+
+    private Map<IRI, Set<OWLAnnotationAssertionAxiom>> getIndexedProperties(OWLOntology ontology, OWLAnnotationSubject subject) {
+        Map<OWLOntology, Map<IRI, Set<OWLAnnotationAssertionAxiom>>> ontologies = subjects.get(subject);
+        if (ontologies == null) {
+            ontologies = new HashMap<OWLOntology, Map<IRI, Set<OWLAnnotationAssertionAxiom>>>();
+            subjects.put(subject, ontologies);
+        }
+        Map<IRI, Set<OWLAnnotationAssertionAxiom>> properties = ontologies.get(ontology);
+        if (properties == null) {
+            properties = bucketByProperty(ontology.getAnnotationAssertionAxioms(subject));
+            ontologies.put(ontology, properties);
+        }
+        return properties;
+    }
+
+
+    /**
+     * Buckets annotation assertions by property IRI, the way the index holds them. Touches neither the index
+     * nor any ontology, so it can be called from any thread.
+     * @return An unmodifiable map from property IRI to the (non-empty) set of axioms with that property.
+     */
+    public static Map<IRI, Set<OWLAnnotationAssertionAxiom>> bucketByProperty(Collection<OWLAnnotationAssertionAxiom> assertions) {
+        Map<IRI, Set<OWLAnnotationAssertionAxiom>> properties = new HashMap<IRI, Set<OWLAnnotationAssertionAxiom>>();
+        for (OWLAnnotationAssertionAxiom ax : assertions) {
+            IRI propertyIRI = ax.getProperty().getIRI();
+            Set<OWLAnnotationAssertionAxiom> axioms = properties.get(propertyIRI);
+            if (axioms == null) {
+                axioms = new HashSet<OWLAnnotationAssertionAxiom>();
+                properties.put(propertyIRI, axioms);
+            }
+            axioms.add(ax);
+        }
+        for (Map.Entry<IRI, Set<OWLAnnotationAssertionAxiom>> entry : properties.entrySet()) {
+            entry.setValue(Collections.unmodifiableSet(entry.getValue()));
+        }
+        return Collections.unmodifiableMap(properties);
+    }
+
+
+    private void handleOntologyChanges(List<? extends OWLOntologyChange> changes) {
+        List<OWLOntologyChange> annotationChanges = new ArrayList<OWLOntologyChange>();
+        synchronized (this) {
+            for (OWLOntologyChange change : changes) {
+                if (change.isAxiomChange() && change.getAxiom().isOfType(AxiomType.ANNOTATION_ASSERTION)) {
+                    update(change.getOntology(), (OWLAnnotationAssertionAxiom) change.getAxiom(), change.isAddAxiom());
+                    annotationChanges.add(change);
+                }
+            }
+            if (!annotationChanges.isEmpty()) {
+                changeCount++;
+            }
+        }
+        // listeners are only notified once the whole change list has been indexed
+        for (OWLOntologyChange change : annotationChanges) {
+            OWLAnnotationAssertionAxiom axiom = (OWLAnnotationAssertionAxiom) change.getAxiom();
+            for (AnnotationAssertionIndexListener listener : listeners) {
+                if (change.isAddAxiom()) {
+                    listener.annotationAssertionAdded(change.getOntology(), axiom);
+                }
+                else {
+                    listener.annotationAssertionRemoved(change.getOntology(), axiom);
+                }
+            }
+        }
+    }
+
+
+    private void update(OWLOntology ontology, OWLAnnotationAssertionAxiom axiom, boolean added) {
+        Map<OWLOntology, Map<IRI, Set<OWLAnnotationAssertionAxiom>>> ontologies = subjects.get(axiom.getSubject());
+        if (ontologies == null) {
+            return;
+        }
+        Map<IRI, Set<OWLAnnotationAssertionAxiom>> properties = ontologies.get(ontology);
+        if (properties == null) {
+            return;
+        }
+        // copy on write, so that maps and sets handed out by lookups never change underneath their users
+        IRI propertyIRI = axiom.getProperty().getIRI();
+        Collection<OWLAnnotationAssertionAxiom> current = properties.get(propertyIRI);
+        Set<OWLAnnotationAssertionAxiom> updated = current == null ? new HashSet<OWLAnnotationAssertionAxiom>() : new HashSet<OWLAnnotationAssertionAxiom>(current);
+        if (added) {
+            updated.add(axiom);
+        }
+        else {
+            updated.remove(axiom);
+        }
+        Map<IRI, Set<OWLAnnotationAssertionAxiom>> updatedProperties = new HashMap<IRI, Set<OWLAnnotationAssertionAxiom>>(properties);
+        if (updated.isEmpty()) {
+            updatedProperties.remove(propertyIRI);
+        }
+        else {
+            updatedProperties.put(propertyIRI, Collections.unmodifiableSet(updated));
+        }
+        ontologies.put(ontology, Collections.unmodifiableMap(updatedProperties));
+    }
+}
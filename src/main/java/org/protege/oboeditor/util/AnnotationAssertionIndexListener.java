@@ -0,0 +1,16 @@
+package org.protege.oboeditor.util;
+
+import org.semanticweb.owlapi.model.OWLAnnotationAssertionAxiom;
+import org.semanticweb.owlapi.model.OWLOntology;
+
+/**
+ * Receives notifications about annotation assertion axioms that have been added to or removed from
+ * an ontology. Listeners are notified after the {@link AnnotationAssertionIndex} has been updated, so
+ * lookups made from within a callback already reflect the change.
+ */
+public interface AnnotationAssertionIndexListener {
+
+    void annotationAssertionAdded(OWLOntology ontology, OWLAnnotationAssertionAxiom axiom);
+
+    void annotationAssertionRemoved(OWLOntology ontology, OWLAnnotationAssertionAxiom axiom);
+}
@@ -0,0 +1,152 @@
+package org.protege.oboeditor.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.protege.editor.core.Disposable;
+import org.protege.editor.owl.model.OWLModelManager;
+import org.semanticweb.owlapi.model.AddAxiom;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLAnnotationProperty;
+import org.semanticweb.owlapi.model.OWLDataFactory;
+import org.semanticweb.owlapi.model.OWLException;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLOntologyChange;
+import org.semanticweb.owlapi.model.OWLOntologyChangeListener;
+
+/**
+ * Makes sure that the annotation properties used by the OBO editor are declared in the active ontology,
+ * without materialising the ontology's annotation property signature.
+ * <p>
+ * Whether a property is in an ontology's signature is checked through the ontology's entity index, and
+ * the answer is remembered per ontology. A remembered property is forgotten as soon as an axiom
+ * mentioning it is removed from that ontology.
+ */
+public class AnnotationPropertyDeclarations implements Disposable {
+
+    private final OWLModelManager modelManager;
+
+    private final Map<OWLOntology, Set<IRI>> declared = new HashMap<OWLOntology, Set<IRI>>();
+
+    private final OWLOntologyChangeListener ontologyChangeListener = new OWLOntologyChangeListener() {
+        public void ontologiesChanged(List<? extends OWLOntologyChange> changes) throws OWLException {
+            handleOntologyChanges(changes);
+        }
+    };
+
+
+    private AnnotationPropertyDeclarations(OWLModelManager modelManager) {
+        this.modelManager = modelManager;
+        modelManager.addOntologyChangeListener(ontologyChangeListener);
+    }
+
+
+    public static synchronized AnnotationPropertyDeclarations get(OWLModelManager modelManager) {
+        AnnotationPropertyDeclarations declarations = modelManager.get(AnnotationPropertyDeclarations.class);
+        if (declarations == null) {
+            declarations = new AnnotationPropertyDeclarations(modelManager);
+            modelManager.put(AnnotationPropertyDeclarations.class, declarations);
+        }
+        return declarations;
+    }
+
+
+    /**
+     * Determines whether an annotation property is in the signature of an ontology.
+     */
+    public synchronized boolean isDeclared(OWLOntology ontology, IRI property) {
+        Set<IRI> properties = declared.get(ontology);
+        if (properties != null && properties.contains(property)) {
+            return true;
+        }
+        if (ontology.containsAnnotationPropertyInSignature(property)) {
+            if (properties == null) {
+                properties = new HashSet<IRI>();
+                declared.put(ontology, properties);
+            }
+            properties.add(property);
+            return true;
+        }
+        return false;
+    }
+
+
+    /**
+     * Declares an annotation property in the active ontology, unless it is already there.
+     * @return The property.
+     */
+    public OWLAnnotationProperty ensureDeclared(IRI property) {
+        List<IRI> properties = new ArrayList<IRI>(1);
+        properties.add(property);
+        ensureDeclared(properties);
+        return modelManager.getOWLDataFactory().getOWLAnnotationProperty(property);
+    }
+
+
+    /**
+     * Declares the given annotation properties in the active ontology, with a single change list for all
+     * properties that are not there yet.
+     */
+    public void ensureDeclared(Collection<IRI> properties) {
+        List<OWLOntologyChange> changes = getDeclarationChanges(properties);
+        if (!changes.isEmpty()) {
+            modelManager.applyChanges(changes);
+        }
+    }
+
+
+    /**
+     * Declares the properties edited in the OBO annotation view in the active ontology, with a single change
+     * list, so that each of them is checked only once. The obsoletion properties are left out; they are
+     * declared when an obsoletion uses them.
+     * @see OBOVocabulary#EDITOR_URIS
+     */
+    public void ensureOBOVocabularyDeclared() {
+        ensureDeclared(OBOVocabulary.EDITOR_URIS);
+    }
+
+
+    /**
+     * Gets the changes that declare the given annotation properties in the active ontology, without applying
+     * them, e.g. to make them part of a larger change list.
+     * @return The (possibly empty) declarations of the properties that are not there yet.
+     */
+    public List<OWLOntologyChange> getDeclarationChanges(Collection<IRI> properties) {
+        OWLOntology ontology = modelManager.getActiveOntology();
+        OWLDataFactory factory = modelManager.getOWLDataFactory();
+        List<OWLOntologyChange> changes = new ArrayList<OWLOntologyChange>();
+        for (IRI property : properties) {
+            if (!isDeclared(ontology, property)) {
+                changes.add(new AddAxiom(ontology, factory.getOWLDeclarationAxiom(factory.getOWLAnnotationProperty(property))));
+            }
+        }
+        return changes;
+    }
+
+
+    public void dispose() {
+        modelManager.removeOntologyChangeListener(ontologyChangeListener);
+        synchronized (this) {
+            declared.clear();
+        }
+    }
+
+
+    private synchronized void handleOntologyChanges(List<? extends OWLOntologyChange> changes) {
+        for (OWLOntologyChange change : changes) {
+            if (change.isRemoveAxiom()) {
+                Set<IRI> properties = declared.get(change.getOntology());
+                if (properties != null) {
+                    for (OWLAnnotationProperty property : change.getAxiom().getAnnotationPropertiesInSignature()) {
+                        properties.remove(property.getIRI());
+                    }
+                }
+            }
+        }
+    }
+}
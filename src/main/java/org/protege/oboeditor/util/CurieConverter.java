@@ -0,0 +1,185 @@
+package org.protege.oboeditor.util;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.semanticweb.owlapi.model.IRI;
+
+/**
+ * Converts IRIs into OBO style CURIEs, such as <code>GO:0008150</code> for
+ * <code>http://purl.obolibrary.org/obo/GO_0008150</code>.
+ * <p>
+ * OBO PURLs are parsed by hand: the local name is split at its last underscore, the part before it
+ * becomes the prefix and the all-digit part after it the local id. IRIs in other namespaces are
+ * converted with the configured prefix map. Conversions are cached, so the same IRI is only ever
+ * parsed once.
+ */
+public class CurieConverter {
+
+    public static final String OBO_PURL = "http://purl.obolibrary.org/obo/";
+
+    private static final int MAX_CACHED_CURIES = 100000;
+
+    // marks IRIs that have no CURIE, as ConcurrentHashMap does not allow null values
+    private static final String NO_CURIE = new String();
+
+    private static final CurieConverter INSTANCE = new CurieConverter();
+
+    private final ConcurrentMap<String, String> curies = new ConcurrentHashMap<String, String>();
+
+    // namespace to prefix, replaced as a whole whenever it changes
+    private volatile Map<String, String> prefixes = Collections.emptyMap();
+
+
+    /**
+     * Gets the converter shared by the whole plugin.
+     */
+    public static CurieConverter getInstance() {
+        return INSTANCE;
+    }
+
+
+    /**
+     * Adds a namespace that is not an OBO PURL, e.g. <code>GO</code> for
+     * <code>http://identifiers.org/go/GO:</code>.  IRIs in the namespace are
+     * converted to the prefix, a colon and the rest of the IRI.
+     */
+    public synchronized void addPrefix(String prefix, String namespace) {
+        Map<String, String> updated = new LinkedHashMap<String, String>(prefixes);
+        updated.put(namespace, prefix);
+        prefixes = Collections.unmodifiableMap(updated);
+        curies.clear();
+    }
+
+
+    public synchronized void removePrefix(String namespace) {
+        Map<String, String> updated = new LinkedHashMap<String, String>(prefixes);
+        if (updated.remove(namespace) != null) {
+            prefixes = Collections.unmodifiableMap(updated);
+            curies.clear();
+        }
+    }
+
+
+    /**
+     * Gets the configured namespaces, mapped to their prefixes.
+     */
+    public Map<String, String> getPrefixes() {
+        return prefixes;
+    }
+
+
+    /**
+     * Gets the CURIE for an IRI.
+     * @return The CURIE, or <code>null</code> if the IRI is neither an OBO PURL nor in a configured namespace.
+     */
+    public String getCurie(IRI iri) {
+        return getCurie(iri.toString());
+    }
+
+
+    public String getCurie(String iri) {
+        String curie = curies.get(iri);
+        if (curie == null) {
+            curie = parse(iri);
+            if (curie == null) {
+                curie = NO_CURIE;
+            }
+            if (curies.size() >= MAX_CACHED_CURIES) {
+                curies.clear();
+            }
+            curies.put(iri, curie);
+        }
+        return curie == NO_CURIE ? null : curie;
+    }
+
+
+    /**
+     * Gets the CURIE for an IRI, or the IRI itself if it has none.
+     */
+    public String getCurieOrIRI(IRI iri) {
+        String iriString = iri.toString();
+        String curie = getCurie(iriString);
+        return curie != null ? curie : iriString;
+    }
+
+
+    /**
+     * Converts an IRI without consulting or filling the cache, for one-off passes over a whole signature.
+     * @return The CURIE, or <code>null</code> if the IRI has none.
+     */
+    public String convert(String iri) {
+        return parse(iri);
+    }
+
+
+    /**
+     * Expands a CURIE into an IRI, using the configured prefix map first and the OBO PURL otherwise.
+     * @return The IRI, or <code>null</code> if the string is not a CURIE.
+     */
+    public IRI getIRI(String curie) {
+        int separator = curie.indexOf(':');
+        if (separator <= 0 || separator == curie.length() - 1) {
+            return null;
+        }
+        String prefix = curie.substring(0, separator);
+        String localId = curie.substring(separator + 1);
+        for (Map.Entry<String, String> entry : prefixes.entrySet()) {
+            if (entry.getValue().equals(prefix)) {
+                return IRI.create(entry.getKey() + localId);
+            }
+        }
+        if (localId.startsWith("//")) {
+            // a plain IRI, not a CURIE
+            return null;
+        }
+        return IRI.create(OBO_PURL + prefix + "_" + localId);
+    }
+
+
+    private String parse(String iri) {
+        if (iri.startsWith(OBO_PURL)) {
+            return parseOBOPurl(iri);
+        }
+        for (Map.Entry<String, String> entry : prefixes.entrySet()) {
+            String namespace = entry.getKey();
+            if (iri.length() > namespace.length() && iri.startsWith(namespace)) {
+                return entry.getValue() + ":" + iri.substring(namespace.length());
+            }
+        }
+        return null;
+    }
+
+
+    /**
+     * Parses <code>http://purl.obolibrary.org/obo/PREFIX_digits</code>, where the prefix consists
+     * of letters, digits and underscores.
+     */
+    private static String parseOBOPurl(String iri) {
+        int start = OBO_PURL.length();
+        int separator = iri.lastIndexOf('_');
+        if (separator <= start || separator == iri.length() - 1) {
+            return null;
+        }
+        for (int i = separator + 1; i < iri.length(); i++) {
+            char c = iri.charAt(i);
+            if (c < '0' || c > '9') {
+                return null;
+            }
+        }
+        for (int i = start; i < separator; i++) {
+            char c = iri.charAt(i);
+            if (!((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_')) {
+                return null;
+            }
+        }
+        StringBuilder sb = new StringBuilder(iri.length() - start);
+        sb.append(iri, start, separator);
+        sb.append(':');
+        sb.append(iri, separator + 1, iri.length());
+        return sb.toString();
+    }
+}
@@ -0,0 +1,69 @@
+package org.protege.oboeditor.util;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLEntity;
+import org.semanticweb.owlapi.model.OWLOntology;
+
+/**
+ * A lookup from CURIEs to the IRIs of the entities that use them, built once from the signatures of a
+ * set of ontologies. Used to resolve the identifiers of files that list many terms by CURIE, where
+ * converting each identifier on its own would not tell whether the entity actually exists.
+ */
+public class CurieIndex {
+
+    private final Map<String, IRI> iris;
+
+
+    private CurieIndex(Map<String, IRI> iris) {
+        this.iris = iris;
+    }
+
+
+    public static CurieIndex build(Collection<OWLOntology> ontologies) {
+        CurieConverter converter = CurieConverter.getInstance();
+        Map<String, IRI> iris = new HashMap<String, IRI>();
+        for (OWLOntology ontology : ontologies) {
+            for (OWLEntity entity : ontology.getSignature()) {
+                IRI iri = entity.getIRI();
+                String curie = converter.convert(iri.toString());
+                if (curie != null) {
+                    iris.put(curie, iri);
+                }
+            }
+        }
+        return new CurieIndex(iris);
+    }
+
+
+    /**
+     * Resolves an identifier, which may be a full IRI (optionally in angle brackets) or a CURIE.
+     * CURIEs that are not used in the indexed ontologies are expanded with the {@link CurieConverter}.
+     * @return The IRI, or <code>null</code> if the identifier is empty or cannot be resolved.
+     */
+    public IRI resolve(String id) {
+        String trimmed = id.trim();
+        if (trimmed.startsWith("<") && trimmed.endsWith(">")) {
+            return IRI.create(trimmed.substring(1, trimmed.length() - 1));
+        }
+        if (trimmed.isEmpty()) {
+            return null;
+        }
+        if (trimmed.contains("://")) {
+            return IRI.create(trimmed);
+        }
+        IRI iri = iris.get(trimmed);
+        if (iri != null) {
+            return iri;
+        }
+        return CurieConverter.getInstance().getIRI(trimmed);
+    }
+
+
+    public int size() {
+        return iris.size();
+    }
+}
@@ -21,15 +21,27 @@ public enum OBOVocabulary {
     DEFINITION("http://purl.obolibrary.org/obo/IAO_0000115"),
     OBO_SUBSET("http://www.geneontology.org/formats/oboInOwl#inSubset"),
     OBO_ID("http://www.geneontology.org/formats/oboInOwl#id"),
-    OBO_ALTERNATE_ID("http://www.geneontology.org/formats/oboInOwl#hasAlternativeId");
+    OBO_ALTERNATE_ID("http://www.geneontology.org/formats/oboInOwl#hasAlternativeId"),
+    REPLACED_BY("http://purl.obolibrary.org/obo/IAO_0100001"),
+    CONSIDER("http://www.geneontology.org/formats/oboInOwl#consider"),
+    OBSOLESCENCE_REASON("http://purl.obolibrary.org/obo/IAO_0000231");
 
     public static final Set<IRI> ALL_URIS;
 
+    /**
+     * The properties that are edited in the OBO annotation view, i.e. all but the obsoletion properties.
+     */
+    public static final Set<IRI> EDITOR_URIS;
+
     static {
         ALL_URIS = new HashSet<IRI>();
         for(OBOVocabulary v : values()) {
             ALL_URIS.add(v.getIRI());
         }
+        EDITOR_URIS = new HashSet<IRI>(ALL_URIS);
+        EDITOR_URIS.remove(REPLACED_BY.getIRI());
+        EDITOR_URIS.remove(CONSIDER.getIRI());
+        EDITOR_URIS.remove(OBSOLESCENCE_REASON.getIRI());
     }
 
     private String localName;
@@ -0,0 +1,234 @@
+package org.protege.oboeditor.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.protege.editor.owl.model.OWLModelManager;
+import org.semanticweb.owlapi.model.AddAxiom;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLAnnotation;
+import org.semanticweb.owlapi.model.OWLAnnotationAssertionAxiom;
+import org.semanticweb.owlapi.model.OWLAnnotationProperty;
+import org.semanticweb.owlapi.model.OWLAnnotationValue;
+import org.semanticweb.owlapi.model.OWLAxiom;
+import org.semanticweb.owlapi.model.OWLClassExpression;
+import org.semanticweb.owlapi.model.OWLDataFactory;
+import org.semanticweb.owlapi.model.OWLDifferentIndividualsAxiom;
+import org.semanticweb.owlapi.model.OWLDisjointClassesAxiom;
+import org.semanticweb.owlapi.model.OWLDisjointObjectPropertiesAxiom;
+import org.semanticweb.owlapi.model.OWLEntity;
+import org.semanticweb.owlapi.model.OWLEquivalentClassesAxiom;
+import org.semanticweb.owlapi.model.OWLEquivalentObjectPropertiesAxiom;
+import org.semanticweb.owlapi.model.OWLIndividual;
+import org.semanticweb.owlapi.model.OWLLiteral;
+import org.semanticweb.owlapi.model.OWLObject;
+import org.semanticweb.owlapi.model.OWLObjectPropertyExpression;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLOntologyChange;
+import org.semanticweb.owlapi.model.OWLSameIndividualAxiom;
+import org.semanticweb.owlapi.model.RemoveAxiom;
+import org.semanticweb.owlapi.vocab.OWLRDFVocabulary;
+
+/**
+ * Computes the changes that make a set of entities obsolete.
+ * <p>
+ * Each entity is relabelled and deprecated in the active ontology. Every logical axiom that mentions
+ * it, in any of the active ontologies, is removed. The lookup goes through the ontologies' referencing
+ * axiom indexes rather than scanning their axioms. N-ary equivalent, disjoint, same and different
+ * axioms are rewritten without the obsoleted operands as long as at least two operands remain.
+ * <p>
+ * Changes can be computed one entity at a time; an axiom that mentions several of the entities is only
+ * removed or rewritten for the first of them, and punned entities that share an IRI are only relabelled
+ * and annotated once. An engine is meant for a single obsoletion run, whose changes are all computed
+ * against the same state of the ontologies and then applied together.
+ */
+public class ObsoletionEngine {
+
+    private final OWLModelManager modelManager;
+
+    private final OWLDataFactory factory;
+
+    private final Set<OWLEntity> entities = new LinkedHashSet<OWLEntity>();
+
+    private final Map<OWLOntology, Set<OWLAxiom>> handledAxioms = new HashMap<OWLOntology, Set<OWLAxiom>>();
+
+    // the IRIs that have been relabelled and deprecated, so that puns are only annotated once
+    private final Set<IRI> annotatedIRIs = new HashSet<IRI>();
+
+
+    public ObsoletionEngine(OWLModelManager modelManager, Collection<? extends OWLEntity> entities) {
+        this.modelManager = modelManager;
+        this.factory = modelManager.getOWLDataFactory();
+        this.entities.addAll(entities);
+    }
+
+
+    public Set<OWLEntity> getEntities() {
+        return Collections.unmodifiableSet(entities);
+    }
+
+
+    /**
+     * Adds entities to obsolete in the same run, e.g. the entities listed in a bulk obsoletion file.  From
+     * then on n-ary axioms are also rewritten without these entities, so all entities should be added before
+     * any changes are computed.
+     */
+    public void addEntities(Collection<? extends OWLEntity> entities) {
+        this.entities.addAll(entities);
+    }
+
+
+    /**
+     * Gets the changes for all entities of this engine.
+     */
+    public List<OWLOntologyChange> getChanges() {
+        List<OWLOntologyChange> changes = new ArrayList<OWLOntologyChange>();
+        for (OWLEntity entity : entities) {
+            changes.addAll(getChanges(entity));
+        }
+        return changes;
+    }
+
+
+    /**
+     * Gets the changes that make one entity obsolete, leaving out axioms that were already handled for
+     * an entity passed in before. The label and deprecation are left out for a pun of such an entity.
+     */
+    public List<OWLOntologyChange> getChanges(OWLEntity entity) {
+        List<OWLOntologyChange> changes = new ArrayList<OWLOntologyChange>();
+        OWLOntology activeOntology = modelManager.getActiveOntology();
+        if (annotatedIRIs.add(entity.getIRI())) {
+            relabel(activeOntology, entity, changes);
+            changes.add(new AddAxiom(activeOntology, factory.getDeprecatedOWLAnnotationAssertionAxiom(entity.getIRI())));
+        }
+        for (OWLOntology ontology : modelManager.getActiveOntologies()) {
+            Set<OWLAxiom> handled = handledAxioms.get(ontology);
+            if (handled == null) {
+                handled = new HashSet<OWLAxiom>();
+                handledAxioms.put(ontology, handled);
+            }
+            for (OWLAxiom axiom : ontology.getReferencingAxioms(entity)) {
+                if (axiom.isLogicalAxiom() && handled.add(axiom)) {
+                    changes.add(new RemoveAxiom(ontology, axiom));
+                    OWLAxiom rewritten = rewrite(axiom);
+                    if (rewritten != null) {
+                        changes.add(new AddAxiom(ontology, rewritten));
+                    }
+                }
+            }
+        }
+        return changes;
+    }
+
+
+    /**
+     * Gets the changes that make one entity obsolete, as {@link #getChanges(OWLEntity)}, and also records
+     * its replacements and the reason for the obsoletion. A single replacement is recorded with
+     * replaced_by, several are recorded as terms to consider instead. Both are written with IRI values.
+     * @param replacements The (possibly empty) replacement terms.
+     * @param reason The obsolescence reason, or <code>null</code>.
+     */
+    public List<OWLOntologyChange> getChanges(OWLEntity entity, List<IRI> replacements, OWLAnnotationValue reason) {
+        boolean annotated = annotatedIRIs.contains(entity.getIRI());
+        List<OWLOntologyChange> changes = getChanges(entity);
+        if (annotated) {
+            // a pun of an entity that has already been handled
+            return changes;
+        }
+        OWLOntology activeOntology = modelManager.getActiveOntology();
+        if (replacements.size() == 1) {
+            changes.add(new AddAxiom(activeOntology, factory.getOWLAnnotationAssertionAxiom(
+                    factory.getOWLAnnotationProperty(OBOVocabulary.REPLACED_BY.getIRI()), entity.getIRI(), replacements.get(0))));
+        }
+        else {
+            OWLAnnotationProperty consider = factory.getOWLAnnotationProperty(OBOVocabulary.CONSIDER.getIRI());
+            for (IRI replacement : replacements) {
+                changes.add(new AddAxiom(activeOntology, factory.getOWLAnnotationAssertionAxiom(consider, entity.getIRI(), replacement)));
+            }
+        }
+        if (reason != null) {
+            changes.add(new AddAxiom(activeOntology, factory.getOWLAnnotationAssertionAxiom(
+                    factory.getOWLAnnotationProperty(OBOVocabulary.OBSOLESCENCE_REASON.getIRI()), entity.getIRI(), reason)));
+        }
+        return changes;
+    }
+
+
+    private void relabel(OWLOntology ontology, OWLEntity entity, List<OWLOntologyChange> changes) {
+        final OWLAnnotationProperty rdfsLabel = factory.getOWLAnnotationProperty(OWLRDFVocabulary.RDFS_LABEL.getIRI());
+        for (OWLAnnotationAssertionAxiom annotation : ontology.getAnnotationAssertionAxioms(entity.getIRI())) {
+            if (annotation.getProperty().equals(rdfsLabel) && annotation.getValue() instanceof OWLLiteral) {
+                final Set<OWLAnnotation> annotationAnnotations = annotation.getAnnotations();
+                final OWLLiteral literal = (OWLLiteral) annotation.getValue();
+                final OWLLiteral newLiteral = factory.getOWLLiteral("obsolete " + literal.getLiteral());
+                changes.add(new RemoveAxiom(ontology, annotation));
+                changes.add(new AddAxiom(ontology, factory.getOWLAnnotationAssertionAxiom(rdfsLabel, entity.getIRI(), newLiteral, annotationAnnotations)));
+            }
+        }
+    }
+
+
+    /**
+     * Rewrites an n-ary axiom without its obsoleted operands.
+     * @return The rewritten axiom, or <code>null</code> if the axiom should just be removed.
+     */
+    private OWLAxiom rewrite(OWLAxiom axiom) {
+        Set<OWLAnnotation> annotations = axiom.getAnnotations();
+        OWLAxiom rewritten = null;
+        if (axiom instanceof OWLEquivalentClassesAxiom) {
+            Set<OWLClassExpression> operands = withoutEntities(((OWLEquivalentClassesAxiom) axiom).getClassExpressions());
+            if (operands.size() > 1) {
+                rewritten = factory.getOWLEquivalentClassesAxiom(operands, annotations);
+            }
+        }
+        else if (axiom instanceof OWLDisjointClassesAxiom) {
+            Set<OWLClassExpression> operands = withoutEntities(((OWLDisjointClassesAxiom) axiom).getClassExpressions());
+            if (operands.size() > 1) {
+                rewritten = factory.getOWLDisjointClassesAxiom(operands, annotations);
+            }
+        }
+        else if (axiom instanceof OWLEquivalentObjectPropertiesAxiom) {
+            Set<OWLObjectPropertyExpression> operands = withoutEntities(((OWLEquivalentObjectPropertiesAxiom) axiom).getProperties());
+            if (operands.size() > 1) {
+                rewritten = factory.getOWLEquivalentObjectPropertiesAxiom(operands, annotations);
+            }
+        }
+        else if (axiom instanceof OWLDisjointObjectPropertiesAxiom) {
+            Set<OWLObjectPropertyExpression> operands = withoutEntities(((OWLDisjointObjectPropertiesAxiom) axiom).getProperties());
+            if (operands.size() > 1) {
+                rewritten = factory.getOWLDisjointObjectPropertiesAxiom(operands, annotations);
+            }
+        }
+        else if (axiom instanceof OWLSameIndividualAxiom) {
+            Set<OWLIndividual> operands = withoutEntities(((OWLSameIndividualAxiom) axiom).getIndividuals());
+            if (operands.size() > 1) {
+                rewritten = factory.getOWLSameIndividualAxiom(operands, annotations);
+            }
+        }
+        else if (axiom instanceof OWLDifferentIndividualsAxiom) {
+            Set<OWLIndividual> operands = withoutEntities(((OWLDifferentIndividualsAxiom) axiom).getIndividuals());
+            if (operands.size() > 1) {
+                rewritten = factory.getOWLDifferentIndividualsAxiom(operands, annotations);
+            }
+        }
+        // an obsoleted entity may still be nested inside one of the remaining operands
+        if (rewritten != null && !Collections.disjoint(rewritten.getSignature(), entities)) {
+            return null;
+        }
+        return rewritten;
+    }
+
+
+    private <T extends OWLObject> Set<T> withoutEntities(Set<T> operands) {
+        Set<T> result = new HashSet<T>(operands);
+        result.removeAll(entities);
+        return result;
+    }
+}
@@ -0,0 +1,137 @@
+package org.protege.oboeditor.util;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.protege.editor.core.Disposable;
+import org.protege.editor.owl.model.OWLModelManager;
+import org.semanticweb.owlapi.model.OWLAnnotation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A weak interning pool for database cross references and the strings derived from them.
+ * <p>
+ * The same xrefs (PMID:..., GOC:..., ISBN:...) are attached to many synonyms and definitions, and the
+ * plugin's caches and render models would otherwise each keep their own equal copies. Interning hands out
+ * one canonical instance per value instead. The pool only refers to its values weakly, so a value is
+ * dropped once nothing else uses it.
+ * <p>
+ * There is one pool per model manager, so that separate workspaces neither share values nor contend for
+ * the same lock. The hit rate is logged when the pool is disposed together with its model manager.
+ */
+public final class XrefPool implements Disposable {
+
+    private static final Logger logger = LoggerFactory.getLogger(XrefPool.class);
+
+    private final Map<Object, WeakReference<Object>> pool = new WeakHashMap<Object, WeakReference<Object>>();
+
+    private long hits;
+
+    private long misses;
+
+
+    private XrefPool() {
+    }
+
+
+    /**
+     * Gets the pool shared by everything that works with the given model manager, creating it on first use.
+     * The pool is disposed together with the model manager.
+     */
+    public static synchronized XrefPool get(OWLModelManager modelManager) {
+        XrefPool pool = modelManager.get(XrefPool.class);
+        if (pool == null) {
+            pool = new XrefPool();
+            modelManager.put(XrefPool.class, pool);
+        }
+        return pool;
+    }
+
+
+    public OWLAnnotation intern(OWLAnnotation xref) {
+        return internObject(xref);
+    }
+
+
+    public String intern(String id) {
+        return internObject(id);
+    }
+
+
+    /**
+     * Interns a list of xrefs, and each xref in it. Many axioms carry exactly the same xrefs, so the list
+     * itself is shared as well.
+     * @return An unmodifiable list.
+     */
+    public List<OWLAnnotation> intern(List<OWLAnnotation> xrefs) {
+        if (xrefs.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<OWLAnnotation> interned = new ArrayList<OWLAnnotation>(xrefs.size());
+        for (OWLAnnotation xref : xrefs) {
+            interned.add(intern(xref));
+        }
+        return internObject(Collections.unmodifiableList(interned));
+    }
+
+
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+
+    /**
+     * Gets the fraction of lookups that were answered with an instance already in the pool.
+     */
+    public synchronized double getHitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0.0 : (double) hits / lookups;
+    }
+
+
+    public synchronized int size() {
+        return pool.size();
+    }
+
+
+    public synchronized void dispose() {
+        if (hits + misses > 0) {
+            logger.info("Xref pool hit rate {}% ({} hits, {} misses, {} pooled values)",
+                    Math.round(getHitRate() * 100), hits, misses, pool.size());
+        }
+        pool.clear();
+    }
+
+
+    @SuppressWarnings("unchecked")
+    private synchronized <T> T internObject(T value) {
+        if (value == null) {
+            return null;
+        }
+        WeakReference<Object> ref = pool.get(value);
+        Object pooled = ref == null ? null : ref.get();
+        if (pooled != null) {
+            hits++;
+            return (T) pooled;
+        }
+        misses++;
+        pool.put(value, new WeakReference<Object>(value));
+        return value;
+    }
+
+
+    @Override
+    public synchronized String toString() {
+        return "XrefPool{size=" + pool.size() + ", hits=" + hits + ", misses=" + misses + '}';
+    }
+}
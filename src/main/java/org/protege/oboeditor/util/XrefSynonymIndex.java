@@ -0,0 +1,399 @@
+package org.protege.oboeditor.util;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import javax.swing.SwingUtilities;
+
+import org.protege.editor.core.Disposable;
+import org.protege.editor.owl.model.OWLModelManager;
+import org.protege.editor.owl.model.event.EventType;
+import org.protege.editor.owl.model.event.OWLModelManagerChangeEvent;
+import org.protege.editor.owl.model.event.OWLModelManagerListener;
+import org.semanticweb.owlapi.model.AxiomType;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLAnnotation;
+import org.semanticweb.owlapi.model.OWLAnnotationAssertionAxiom;
+import org.semanticweb.owlapi.model.OWLAnnotationSubject;
+import org.semanticweb.owlapi.model.OWLException;
+import org.semanticweb.owlapi.model.OWLLiteral;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLOntologyChange;
+import org.semanticweb.owlapi.model.OWLOntologyChangeListener;
+
+/**
+ * An inverted index from database cross references and synonyms to the subjects that carry them, over the
+ * active ontologies of a model manager.
+ * <p>
+ * Indexed are the values of xref and synonym annotation assertions, and the xrefs on any annotation
+ * assertion, e.g. the references of a definition. Values are matched ignoring case and surrounding white
+ * space. The index is built with one pass over the annotation assertions the first time it is used, and
+ * kept up to date from ontology changes after that; changes made during the build are replayed onto it.
+ * It is rebuilt when the active ontology or its imports change.
+ * <p>
+ * The index records which axioms, in which ontologies, give a subject a value, rather than counting
+ * them, so that applying an addition or removal twice leaves it unchanged.
+ */
+public class XrefSynonymIndex implements Disposable {
+
+    // the number of times a build is repeated when the active ontologies change while it runs
+    private static final int MAX_BUILD_ATTEMPTS = 3;
+
+    private static final Set<IRI> INDEXED_PROPERTIES = new HashSet<IRI>();
+
+    static {
+        INDEXED_PROPERTIES.add(OBOVocabulary.XREF.getIRI());
+        INDEXED_PROPERTIES.add(OBOVocabulary.HAS_EXACT_SYNONYM.getIRI());
+        INDEXED_PROPERTIES.add(OBOVocabulary.HAS_RELATED_SYNONYM.getIRI());
+        INDEXED_PROPERTIES.add(OBOVocabulary.HAS_BROAD_SYNONYM.getIRI());
+        INDEXED_PROPERTIES.add(OBOVocabulary.HAS_NARROW_SYNONYM.getIRI());
+    }
+
+    private final OWLModelManager modelManager;
+
+    // value -> subject -> the axioms in the active ontologies that give the subject the value
+    private Map<String, Map<OWLAnnotationSubject, Set<Occurrence>>> index;
+
+    // incremented whenever the index is dropped, so that a build can tell it is for the wrong ontologies
+    private long generation;
+
+    // the annotation assertion changes made since the snapshot of a build, replayed onto its result
+    private List<OWLOntologyChange> changesDuringBuild;
+
+    private final Object buildLock = new Object();
+
+    private final OWLOntologyChangeListener ontologyChangeListener = new OWLOntologyChangeListener() {
+        public void ontologiesChanged(List<? extends OWLOntologyChange> changes) throws OWLException {
+            handleOntologyChanges(changes);
+        }
+    };
+
+    private final OWLModelManagerListener modelManagerListener = new OWLModelManagerListener() {
+        public void handleChange(OWLModelManagerChangeEvent event) {
+            if (event.isType(EventType.ACTIVE_ONTOLOGY_CHANGED)) {
+                invalidate();
+            }
+        }
+    };
+
+
+    private XrefSynonymIndex(OWLModelManager modelManager) {
+        this.modelManager = modelManager;
+        modelManager.addOntologyChangeListener(ontologyChangeListener);
+        modelManager.addListener(modelManagerListener);
+    }
+
+
+    public static synchronized XrefSynonymIndex get(OWLModelManager modelManager) {
+        XrefSynonymIndex index = modelManager.get(XrefSynonymIndex.class);
+        if (index == null) {
+            index = new XrefSynonymIndex(modelManager);
+            modelManager.put(XrefSynonymIndex.class, index);
+        }
+        return index;
+    }
+
+
+    /**
+     * Determines whether the values of an annotation property are indexed.
+     */
+    public static boolean isIndexed(IRI property) {
+        return INDEXED_PROPERTIES.contains(property);
+    }
+
+
+    /**
+     * Gets the values of an annotation assertion that are looked up in the index: its value if the property
+     * is indexed, and its xrefs.
+     */
+    public static Set<String> getIndexedValues(OWLAnnotationAssertionAxiom axiom) {
+        Set<String> values = new LinkedHashSet<String>();
+        if (isIndexed(axiom.getProperty().getIRI()) && axiom.getValue() instanceof OWLLiteral) {
+            values.add(((OWLLiteral) axiom.getValue()).getLiteral());
+        }
+        for (OWLAnnotation annotation : axiom.getAnnotations()) {
+            if (OBOVocabulary.XREF.getIRI().equals(annotation.getProperty().getIRI()) && annotation.getValue() instanceof OWLLiteral) {
+                values.add(((OWLLiteral) annotation.getValue()).getLiteral());
+            }
+        }
+        return values;
+    }
+
+
+    /**
+     * Gets the subjects that carry an xref or synonym. The first lookup builds the index, which copies the
+     * annotation assertions of the active ontologies on the event dispatch thread, where the ontologies are
+     * changed, and then indexes the copies on the calling thread. The lookup must therefore not be made
+     * on the event dispatch thread, which would otherwise wait for itself.
+     * @return An unmodifiable, possibly empty, set of subjects.
+     * @throws InterruptedException If the thread is interrupted while the index is built.
+     * @throws IndexUnavailableException If the active ontologies kept changing while the index was built,
+     * so that it could not be built for them.
+     */
+    public Set<OWLAnnotationSubject> getSubjects(String value) throws InterruptedException, IndexUnavailableException {
+        if (SwingUtilities.isEventDispatchThread()) {
+            throw new IllegalStateException("Xrefs and synonyms must not be looked up on the event dispatch thread");
+        }
+        String key = normalize(value);
+        synchronized (this) {
+            if (index != null) {
+                return getSubjects(index, key);
+            }
+        }
+        // only one thread builds, others wait for its result
+        synchronized (buildLock) {
+            for (int attempt = 0; attempt < MAX_BUILD_ATTEMPTS; attempt++) {
+                synchronized (this) {
+                    if (index != null) {
+                        return getSubjects(index, key);
+                    }
+                }
+                Map<String, Map<OWLAnnotationSubject, Set<Occurrence>>> result = null;
+                BuildSnapshot snapshot = new BuildSnapshot();
+                try {
+                    takeSnapshot(snapshot);
+                    // built without holding the lock, so that ontology changes are not held up by a long build
+                    result = build(snapshot.axioms);
+                }
+                finally {
+                    synchronized (this) {
+                        if (result != null && generation == snapshot.generation) {
+                            // catch up with the edits made since the snapshot; an edit that is already in
+                            // the snapshot is simply applied again, which does not change the index
+                            for (OWLOntologyChange change : changesDuringBuild) {
+                                if (snapshot.ontologies.contains(change.getOntology())) {
+                                    update(result, change.getOntology(), (OWLAnnotationAssertionAxiom) change.getAxiom(), change.isAddAxiom());
+                                }
+                            }
+                            index = result;
+                        }
+                        changesDuringBuild = null;
+                    }
+                }
+                synchronized (this) {
+                    if (index != null && index == result) {
+                        return getSubjects(index, key);
+                    }
+                }
+                // the active ontologies changed during the build, the result is for the wrong ontologies
+            }
+            throw new IndexUnavailableException("The active ontologies changed " + MAX_BUILD_ATTEMPTS
+                    + " times while the xref and synonym index was built");
+        }
+    }
+
+
+    /**
+     * Determines whether the index has been built, i.e. whether a lookup is cheap.
+     */
+    public synchronized boolean isBuilt() {
+        return index != null;
+    }
+
+
+    public void dispose() {
+        modelManager.removeOntologyChangeListener(ontologyChangeListener);
+        modelManager.removeListener(modelManagerListener);
+        invalidate();
+    }
+
+
+    private static Set<OWLAnnotationSubject> getSubjects(Map<String, Map<OWLAnnotationSubject, Set<Occurrence>>> index, String key) {
+        Map<OWLAnnotationSubject, Set<Occurrence>> subjects = index.get(key);
+        if (subjects == null) {
+            return Collections.emptySet();
+        }
+        return Collections.unmodifiableSet(new HashSet<OWLAnnotationSubject>(subjects.keySet()));
+    }
+
+
+    /**
+     * Takes the snapshot for a build on the event dispatch thread, where the ontologies are changed.
+     */
+    private void takeSnapshot(BuildSnapshot snapshot) throws InterruptedException {
+        try {
+            SwingUtilities.invokeAndWait(snapshot);
+        }
+        catch (InterruptedException e) {
+            // the snapshot must not be taken any more once the build has been given up
+            snapshot.abandon();
+            throw e;
+        }
+        catch (InvocationTargetException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+
+    private static Map<String, Map<OWLAnnotationSubject, Set<Occurrence>>> build(Map<OWLOntology, List<OWLAnnotationAssertionAxiom>> axioms) throws InterruptedException {
+        Map<String, Map<OWLAnnotationSubject, Set<Occurrence>>> index = new HashMap<String, Map<OWLAnnotationSubject, Set<Occurrence>>>();
+        int count = 0;
+        for (Map.Entry<OWLOntology, List<OWLAnnotationAssertionAxiom>> entry : axioms.entrySet()) {
+            for (OWLAnnotationAssertionAxiom axiom : entry.getValue()) {
+                if (++count % 1000 == 0 && Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+                update(index, entry.getKey(), axiom, true);
+            }
+        }
+        return index;
+    }
+
+
+    private static void update(Map<String, Map<OWLAnnotationSubject, Set<Occurrence>>> index, OWLOntology ontology,
+                               OWLAnnotationAssertionAxiom axiom, boolean added) {
+        Occurrence occurrence = new Occurrence(ontology, axiom);
+        for (String value : getIndexedValues(axiom)) {
+            String key = normalize(value);
+            Map<OWLAnnotationSubject, Set<Occurrence>> subjects = index.get(key);
+            if (added) {
+                if (subjects == null) {
+                    subjects = new HashMap<OWLAnnotationSubject, Set<Occurrence>>(2);
+                    index.put(key, subjects);
+                }
+                Set<Occurrence> occurrences = subjects.get(axiom.getSubject());
+                if (occurrences == null) {
+                    occurrences = new HashSet<Occurrence>(2);
+                    subjects.put(axiom.getSubject(), occurrences);
+                }
+                occurrences.add(occurrence);
+            }
+            else if (subjects != null) {
+                Set<Occurrence> occurrences = subjects.get(axiom.getSubject());
+                if (occurrences != null && occurrences.remove(occurrence) && occurrences.isEmpty()) {
+                    subjects.remove(axiom.getSubject());
+                    if (subjects.isEmpty()) {
+                        index.remove(key);
+                    }
+                }
+            }
+        }
+    }
+
+
+    private static String normalize(String value) {
+        // not pooled: keys are held by the index anyway, and lookups must not contend for the pool's lock
+        return value.trim().toLowerCase(Locale.ROOT);
+    }
+
+
+    private synchronized void invalidate() {
+        index = null;
+        generation++;
+    }
+
+
+    private synchronized void handleOntologyChanges(List<? extends OWLOntologyChange> changes) {
+        Set<OWLOntology> ontologies = null;
+        for (OWLOntologyChange change : changes) {
+            if (change.isImportChange()) {
+                // the imports closure has changed
+                invalidate();
+                return;
+            }
+            if (!change.isAxiomChange() || !change.getAxiom().isOfType(AxiomType.ANNOTATION_ASSERTION)) {
+                continue;
+            }
+            if (index == null) {
+                if (changesDuringBuild != null) {
+                    changesDuringBuild.add(change);
+                }
+                continue;
+            }
+            if (ontologies == null) {
+                ontologies = modelManager.getActiveOntologies();
+            }
+            if (ontologies.contains(change.getOntology())) {
+                update(index, change.getOntology(), (OWLAnnotationAssertionAxiom) change.getAxiom(), change.isAddAxiom());
+            }
+        }
+    }
+
+
+    /**
+     * Thrown when the index cannot be built because the active ontologies keep changing while it is built.
+     */
+    public static class IndexUnavailableException extends Exception {
+
+        private static final long serialVersionUID = -3392617519402176251L;
+
+        public IndexUnavailableException(String message) {
+            super(message);
+        }
+    }
+
+
+    /**
+     * The active ontologies and copies of their annotation assertions, taken on the event dispatch thread.
+     * From the moment the snapshot is taken, ontology changes are collected for replay onto the result.
+     */
+    private class BuildSnapshot implements Runnable {
+
+        private long generation;
+
+        private Set<OWLOntology> ontologies = Collections.emptySet();
+
+        private final Map<OWLOntology, List<OWLAnnotationAssertionAxiom>> axioms = new HashMap<OWLOntology, List<OWLAnnotationAssertionAxiom>>();
+
+        private boolean abandoned;
+
+        public synchronized void run() {
+            if (abandoned) {
+                return;
+            }
+            synchronized (XrefSynonymIndex.this) {
+                generation = XrefSynonymIndex.this.generation;
+                ontologies = new HashSet<OWLOntology>(modelManager.getActiveOntologies());
+                changesDuringBuild = new ArrayList<OWLOntologyChange>();
+            }
+            for (OWLOntology ontology : ontologies) {
+                axioms.put(ontology, new ArrayList<OWLAnnotationAssertionAxiom>(ontology.getAxioms(AxiomType.ANNOTATION_ASSERTION)));
+            }
+        }
+
+        synchronized void abandon() {
+            abandoned = true;
+        }
+    }
+
+
+    /**
+     * An annotation assertion in an ontology. The same axiom can be in several of the active ontologies.
+     */
+    private static final class Occurrence {
+
+        private final OWLOntology ontology;
+
+        private final OWLAnnotationAssertionAxiom axiom;
+
+        private Occurrence(OWLOntology ontology, OWLAnnotationAssertionAxiom axiom) {
+            this.ontology = ontology;
+            this.axiom = axiom;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * ontology.hashCode() + axiom.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Occurrence)) {
+                return false;
+            }
+            Occurrence other = (Occurrence) obj;
+            return ontology.equals(other.ontology) && axiom.equals(other.axiom);
+        }
+    }
+}
@@ -1,13 +1,27 @@
 package org.protege.oboeditor.views;
 
+import org.protege.editor.core.prefs.Preferences;
+import org.protege.editor.core.prefs.PreferencesManager;
+import org.protege.editor.owl.model.hierarchy.OWLObjectHierarchyProvider;
 import org.protege.editor.owl.ui.view.cls.AbstractOWLClassViewComponent;
 import org.protege.oboeditor.frames.OBOAnnotationFrame;
 import org.protege.oboeditor.frames.OBOAnnotationFrameList;
+import org.semanticweb.owlapi.model.IRI;
 import org.semanticweb.owlapi.model.OWLAnnotationSubject;
 import org.semanticweb.owlapi.model.OWLClass;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import javax.swing.*;
 import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
 
 /**
  * @author Simon Jupp
@@ -20,24 +34,174 @@ public class OBOAnnotationViewComponent extends AbstractOWLClassViewComponent {
      *
      */
     private static final long serialVersionUID = -3036939007124710864L;
+
+    private static final Logger logger = LoggerFactory.getLogger(OBOAnnotationViewComponent.class);
+
+    public static final String PREFERENCES_KEY = "org.protege.oboeditor";
+
+    /**
+     * The preference that holds the time, in milliseconds, that selections are coalesced for before the
+     * annotations of the last one are shown.  Zero shows every selection straight away.
+     */
+    public static final String SELECTION_DELAY_KEY = "SELECTION_DELAY_MS";
+
+    public static final int DEFAULT_SELECTION_DELAY = 150;
+
     private OBOAnnotationFrameList<OWLAnnotationSubject> list;
 
+    private Timer selectionTimer;
+
+    private OWLClass pendingClass;
+
+    private OBOAnnotationFrame frame;
+
+    private static final int MAX_PREFETCHED_CLASSES = 64;
+
+    // number of selections that were superseded before their annotations were shown
+    private int skippedRefillCount;
+
+    // the part of skippedRefillCount since the last class was shown
+    private int burstSkippedRefillCount;
+
 
     public void disposeView() {
+        selectionTimer.stop();
         list.dispose();
     }
 
 
     @Override
     public void initialiseClassView() throws Exception {
-        list = new OBOAnnotationFrameList<OWLAnnotationSubject> (getOWLEditorKit(), new OBOAnnotationFrame(getOWLEditorKit()));
+        frame = new OBOAnnotationFrame(getOWLEditorKit());
+        list = new OBOAnnotationFrameList<OWLAnnotationSubject> (getOWLEditorKit(), frame);
         setLayout(new BorderLayout());
         add(new JScrollPane(list));
+        Preferences prefs = PreferencesManager.getInstance().getApplicationPreferences(PREFERENCES_KEY);
+        selectionTimer = new Timer(prefs.getInt(SELECTION_DELAY_KEY, DEFAULT_SELECTION_DELAY), new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                showClass(pendingClass);
+            }
+        });
+        selectionTimer.setRepeats(false);
     }
 
     @Override
     protected OWLClass updateView(OWLClass selectedClass) {
-        list.setRootObject(selectedClass == null ? null : selectedClass.getIRI());
+        if (selectionTimer.getInitialDelay() <= 0) {
+            showClass(selectedClass);
+            return selectedClass;
+        }
+        if (selectionTimer.isRunning()) {
+            // keying through the hierarchy, only show the last selection and don't leave the annotations
+            // of a class that is long gone on screen in the meantime
+            skippedRefillCount++;
+            burstSkippedRefillCount++;
+            if (list.getRootObject() != null) {
+                list.setRootObject(null);
+            }
+        }
+        else {
+            // a single click, keep showing the previous class until the new one is loaded, but make sure
+            // that nothing can be added to or edited on it in the meantime
+            list.setEnabled(false);
+        }
+        pendingClass = selectedClass;
+        selectionTimer.restart();
         return selectedClass;
     }
+
+    private void showClass(OWLClass cls) {
+        if (burstSkippedRefillCount > 0) {
+            logger.debug("Skipped {} refills of the OBO annotation view while selections were coalesced ({} in total)",
+                    burstSkippedRefillCount, skippedRefillCount);
+            burstSkippedRefillCount = 0;
+        }
+        // enables editing again once the annotations of the class are shown
+        list.loadRootObject(cls == null ? null : cls.getIRI());
+        if (cls != null) {
+            prefetchNeighbours(cls);
+        }
+    }
+
+    /**
+     * Editors tend to walk the class tree, so the children and siblings of the shown class are indexed
+     * while the UI is idle to make the next selection cheap. The neighbours are only gathered as the
+     * prefetch gets to them, so showing a class never asks the hierarchy for children.
+     */
+    private void prefetchNeighbours(OWLClass cls) {
+        OWLObjectHierarchyProvider<OWLClass> hierarchy = getOWLModelManager().getOWLHierarchyManager().getOWLClassHierarchyProvider();
+        frame.prefetch(new NeighbourIterator(hierarchy, cls), new HashSet<OWLOntology>(getOWLModelManager().getActiveOntologies()));
+    }
+
+    /**
+     * Gets the number of selections whose annotations were never shown because another selection followed
+     * within the coalescing delay.
+     */
+    public int getSkippedRefillCount() {
+        return skippedRefillCount;
+    }
+
+
+    /**
+     * Iterates over the children of a class and then over the children of each of its parents, leaving out
+     * the class itself. The children of a class are only asked for once the previous ones are used up, and
+     * no more are asked for once the prefetch cap of neighbours has been returned, e.g. before
+     * getting to the thousands of classes under owl:Thing.
+     */
+    private static class NeighbourIterator implements Iterator<IRI> {
+
+        private final OWLObjectHierarchyProvider<OWLClass> hierarchy;
+
+        private final OWLClass shown;
+
+        private Iterator<OWLClass> parents;
+
+        private Iterator<OWLClass> neighbours;
+
+        private final Set<IRI> returned = new HashSet<IRI>();
+
+        private IRI next;
+
+        private NeighbourIterator(OWLObjectHierarchyProvider<OWLClass> hierarchy, OWLClass shown) {
+            this.hierarchy = hierarchy;
+            this.shown = shown;
+        }
+
+        public boolean hasNext() {
+            while (next == null && returned.size() < MAX_PREFETCHED_CLASSES) {
+                if (neighbours == null) {
+                    neighbours = new ArrayList<OWLClass>(hierarchy.getChildren(shown)).iterator();
+                }
+                else if (neighbours.hasNext()) {
+                    OWLClass neighbour = neighbours.next();
+                    if (!neighbour.equals(shown) && returned.add(neighbour.getIRI())) {
+                        next = neighbour.getIRI();
+                    }
+                }
+                else {
+                    if (parents == null) {
+                        parents = new ArrayList<OWLClass>(hierarchy.getParents(shown)).iterator();
+                    }
+                    if (!parents.hasNext()) {
+                        return false;
+                    }
+                    neighbours = new ArrayList<OWLClass>(hierarchy.getChildren(parents.next())).iterator();
+                }
+            }
+            return next != null;
+        }
+
+        public IRI next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            IRI neighbour = next;
+            next = null;
+            return neighbour;
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
 }